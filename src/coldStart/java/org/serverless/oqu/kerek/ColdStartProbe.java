@@ -0,0 +1,26 @@
+package org.serverless.oqu.kerek;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Loads and instantiates a handler in a fresh JVM the way the Lambda runtime does on a cold start, and prints
+ * {@code initMillis,uptimeMillis,loadedClasses}: the time spent in the handler's class initialization and
+ * constructor, the time since the JVM started and the number of classes loaded by then.
+ */
+public final class ColdStartProbe {
+
+    private ColdStartProbe() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final var start = System.nanoTime();
+        Class.forName(args[0], true, ColdStartProbe.class.getClassLoader())
+                .getDeclaredConstructor()
+                .newInstance();
+        final var initMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("%d,%d,%d%n",
+                initMillis,
+                ManagementFactory.getRuntimeMXBean().getUptime(),
+                ManagementFactory.getClassLoadingMXBean().getLoadedClassCount());
+    }
+}
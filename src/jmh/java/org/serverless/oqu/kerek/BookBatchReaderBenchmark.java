@@ -0,0 +1,98 @@
+package org.serverless.oqu.kerek;
+
+import org.openjdk.jmh.annotations.*;
+import org.serverless.oqu.kerek.model.BookInfo;
+import org.serverless.oqu.kerek.repo.BookBatchReader;
+import org.serverless.oqu.kerek.repo.BookMapper;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+import static org.serverless.oqu.kerek.repo.BookMapper.BOOK_ID;
+
+/**
+ * Measures the latency of reading books by IDs depending on the number of IDs and the number of concurrent requests.
+ * DynamoDB is replaced by an in-memory stand-in that answers each BatchGetItem after a fixed round trip
+ * and leaves a share of the keys unprocessed, like a throttled table does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BookBatchReaderBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int ids;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    @Param({"5"})
+    private long roundTripMillis;
+
+    @Param({"0.1"})
+    private double unprocessedShare;
+
+    private BookBatchReader reader;
+    private List<String> bookIds;
+
+    @Setup
+    public void setUp() {
+        final var mapper = new BookMapper();
+        final Map<String, Map<String, AttributeValue>> items = new HashMap<>();
+        for (int i = 0; i < ids; i++) {
+            final var book = BookInfo.builder()
+                    .id(String.valueOf(i))
+                    .title("Title " + i)
+                    .author("Author " + i)
+                    .imageUrl("https://kazneb.kz/images/" + i + ".png")
+                    .build();
+            items.put(book.getId(), mapper.mapToBookItem(book));
+        }
+
+        final var dynamoDbClient = (DynamoDbClient) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{DynamoDbClient.class}, (proxy, method, args) -> {
+            if (!"batchGetItem".equals(method.getName())) throw new UnsupportedOperationException(method.getName());
+            final var builder = BatchGetItemRequest.builder();
+            ((Consumer<BatchGetItemRequest.Builder>) args[0]).accept(builder);
+            Thread.sleep(roundTripMillis);
+            return respond(builder.build(), items);
+        });
+        reader = new BookBatchReader(dynamoDbClient, mapper, parallelism, 10);
+
+        bookIds = IntStream.range(0, ids).mapToObj(String::valueOf).collect(toList());
+        Collections.shuffle(bookIds, new Random(42));
+    }
+
+    @Benchmark
+    public List<BookInfo> read() {
+        return reader.read("books", bookIds);
+    }
+
+    private BatchGetItemResponse respond(final BatchGetItemRequest request, final Map<String, Map<String, AttributeValue>> items) {
+        final var response = BatchGetItemResponse.builder();
+        request.requestItems().forEach((table, keysAndAttributes) -> {
+            final var keys = keysAndAttributes.keys();
+            // The last keys are left unprocessed unless the request is already a retry of a few keys
+            final var processed = keys.size() < 10 ? keys.size() : keys.size() - (int) (keys.size() * unprocessedShare);
+            final var found = new ArrayList<Map<String, AttributeValue>>(processed);
+            keys.subList(0, processed).forEach(key -> found.add(items.get(key.get(BOOK_ID).s())));
+            response.responses(Map.of(table, found));
+            if (processed < keys.size()) {
+                response.unprocessedKeys(Map.of(table, keysAndAttributes.toBuilder().keys(keys.subList(processed, keys.size())).build()));
+            }
+        });
+        return response.build();
+    }
+}
@@ -0,0 +1,91 @@
+package org.serverless.oqu.kerek;
+
+import org.openjdk.jmh.annotations.*;
+import org.serverless.oqu.kerek.model.BookInfo;
+import org.serverless.oqu.kerek.repo.BookMapper;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toMap;
+import static org.serverless.oqu.kerek.repo.BookMapper.*;
+import static software.amazon.awssdk.utils.StringUtils.isNotBlank;
+
+/**
+ * Compares the mapping of a book to and from a DynamoDB item with the previous implementation,
+ * which went through the tables of getters and setters with streams. Run with the gc profiler
+ * of the build to see the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BookMapperBenchmark {
+
+    private final BookMapper mapper = new BookMapper();
+
+    private BookInfo book;
+    private Map<String, AttributeValue> item;
+
+    @Setup
+    public void setUp() {
+        book = BookInfo.builder()
+                .id("1628186")
+                .title("Қазақ әдебиетінің тарихы")
+                .author("Әуезов М.")
+                .imageUrl("https://kazneb.kz/FileStore/dataFiles/8c/12/1628186/cover.png")
+                .status("Ready")
+                .build();
+        item = mapper.mapToBookItem(book);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> writeBook() {
+        return mapper.mapToBookItem(book);
+    }
+
+    @Benchmark
+    public BookInfo readBook() {
+        return mapper.mapToBook(item);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> writeBookLegacy() {
+        return LEGACY_BOOK_GETTERS.entrySet()
+                .stream()
+                .filter(e -> isNotBlank(e.getValue().apply(book)))
+                .collect(toMap(Map.Entry::getKey, e -> AttributeValue.builder().s(e.getValue().apply(book)).build()));
+    }
+
+    @Benchmark
+    public BookInfo readBookLegacy() {
+        final var builder = BookInfo.builder();
+        LEGACY_BOOK_SETTERS.entrySet()
+                .stream()
+                .filter(e -> item.containsKey(e.getKey()))
+                .filter(e -> nonNull(item.get(e.getKey())))
+                .forEach(e -> e.getValue().accept(builder, item.get(e.getKey()).s()));
+        return builder.build();
+    }
+
+    private static final Map<String, Function<BookInfo, String>> LEGACY_BOOK_GETTERS = Map.of(
+            BOOK_ID, BookInfo::getId,
+            USER_EMAIL, BookInfo::getId,
+            TITLE, BookInfo::getTitle,
+            AUTHOR, BookInfo::getAuthor,
+            IMAGE_URL, BookInfo::getImageUrl,
+            STATUS, book -> Optional.ofNullable(book.getStatus()).orElse("InProgress")
+    );
+
+    private static final Map<String, BiConsumer<BookInfo.BookInfoBuilder, String>> LEGACY_BOOK_SETTERS = Map.of(
+            BOOK_ID, BookInfo.BookInfoBuilder::id,
+            TITLE, BookInfo.BookInfoBuilder::title,
+            AUTHOR, BookInfo.BookInfoBuilder::author,
+            IMAGE_URL, BookInfo.BookInfoBuilder::imageUrl,
+            STATUS, BookInfo.BookInfoBuilder::status
+    );
+}
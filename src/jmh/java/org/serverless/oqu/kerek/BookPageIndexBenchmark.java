@@ -0,0 +1,75 @@
+package org.serverless.oqu.kerek;
+
+import org.openjdk.jmh.annotations.*;
+import org.serverless.oqu.kerek.storage.BookPageIndex;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Measures the cost of listing and ordering book pages depending on the number of pages.
+ * S3 responses are prepared in advance, so the results cover the client side only; the number of
+ * LIST requests is always {@code ceil(pages / 1000)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BookPageIndexBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    private int pages;
+
+    private BookPageIndex index;
+
+    @Setup
+    public void setUp() {
+        final var keys = IntStream.rangeClosed(1, pages)
+                .mapToObj(i -> "book/" + i + ".png")
+                .sorted()
+                .collect(toList());
+        keys.add("book/last.png");
+
+        final Map<String, ListObjectsV2Response> responses = new HashMap<>();
+        for (int from = 0; from < keys.size(); from += 1000) {
+            final var page = keys.subList(from, Math.min(from + 1000, keys.size()));
+            final var truncated = from + 1000 < keys.size();
+            final var contents = new ArrayList<S3Object>(page.size());
+            page.forEach(key -> contents.add(S3Object.builder().key(key).size(250_000L).build()));
+            responses.put(from == 0 ? null : keys.get(from - 1), ListObjectsV2Response.builder()
+                    .contents(contents)
+                    .isTruncated(truncated)
+                    .nextContinuationToken(truncated ? page.get(page.size() - 1) : null)
+                    .build());
+        }
+
+        final var s3Client = (S3Client) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{S3Client.class}, (proxy, method, args) -> {
+            final var request = (ListObjectsV2Request) args[0];
+            if ("listObjectsV2Paginator".equals(method.getName())) return new ListObjectsV2Iterable((S3Client) proxy, request);
+            if ("listObjectsV2".equals(method.getName())) return responses.get(request.continuationToken());
+            throw new UnsupportedOperationException(method.getName());
+        });
+        index = new BookPageIndex(s3Client, "bucket", "book");
+    }
+
+    @Benchmark
+    public List<S3Object> sortedPages() {
+        return index.sortedPages();
+    }
+
+    @Benchmark
+    public long countPages() {
+        return index.pages().count();
+    }
+}
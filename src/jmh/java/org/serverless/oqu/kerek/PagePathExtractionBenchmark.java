@@ -0,0 +1,96 @@
+package org.serverless.oqu.kerek;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.*;
+import org.serverless.oqu.kerek.util.HtmlParseUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares the streaming extraction of page paths with the previous DOM based one on a book view page
+ * of the given number of pages. The page mirrors the markup of kazneb.kz: a layout with navigation and
+ * several scripts, one of which pushes the paths of all pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PagePathExtractionBenchmark {
+
+    private static final Pattern SCRIPT_PATTERN = Pattern.compile("^pages.push\\(\"(/\\w+){7}\\.png\\?time=\\d+&amp;key=\\w+\"\\);$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PAGE_PATH_PATTERN = Pattern.compile("(/\\w+){7}\\.png\\?time=\\d+&amp;key=\\w+");
+
+    @Param({"2000"})
+    private int pages;
+
+    private byte[] bookViewPage;
+
+    @Setup
+    public void setUp() {
+        final var html = new StringBuilder(pages * 100 + 16_384)
+                .append("<!DOCTYPE html>\n<html lang=\"ru\">\n<head>\n<meta charset=\"utf-8\">\n<title>Просмотр книги</title>\n")
+                .append("<link rel=\"stylesheet\" href=\"/css/main.css\">\n")
+                .append("<script src=\"/js/jquery.min.js\"></script>\n")
+                .append("<script>\n  window.dataLayer = window.dataLayer || [];\n  function gtag(){dataLayer.push(arguments);}\n</script>\n")
+                .append("</head>\n<body>\n<div class=\"header\"><ul class=\"menu\">");
+        for (int i = 0; i < 50; i++) {
+            html.append("<li><a href=\"/ru/catalogue/section/").append(i).append("\">Раздел ").append(i).append("</a></li>");
+        }
+        html.append("</ul></div>\n<div class=\"viewer\"><canvas id=\"page\"></canvas></div>\n<script>\n    var pages = [];\n");
+        for (int i = 1; i <= pages; i++) {
+            html.append("    pages.push(\"/FileStore/dataFiles/8c/12/1628186/content/")
+                    .append(i)
+                    .append(".png?time=1690000000&amp;key=")
+                    .append(Integer.toHexString(i * 7919))
+                    .append("\");\n");
+        }
+        html.append("    viewer.init(pages);\n</script>\n<div class=\"footer\">© kazneb.kz</div>\n</body>\n</html>\n");
+        bookViewPage = html.toString().getBytes(UTF_8);
+
+        if (streaming().size() != pages || dom().size() != pages) throw new IllegalStateException("Unexpected number of pages");
+    }
+
+    @Benchmark
+    public List<String> streaming() {
+        try {
+            return HtmlParseUtils.extractPagePaths(new ByteArrayInputStream(bookViewPage));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The previous implementation of {@code HtmlParseUtils.parseBookPagesUrls} without the request.
+     */
+    @Benchmark
+    public List<String> dom() {
+        final var bookPage = Jsoup.parse(new String(bookViewPage, UTF_8));
+        final List<String> pages = new LinkedList<>();
+        for (Element element : bookPage.select("script")) {
+            final var tokenizer = new StringTokenizer(element.data());
+            while (tokenizer.hasMoreTokens()) {
+                pages.add(parsePagePath(tokenizer.nextElement().toString()));
+            }
+        }
+        return pages.stream().filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private static String parsePagePath(final String scriptLine) {
+        if (!SCRIPT_PATTERN.matcher(scriptLine).matches()) {
+            return null;
+        }
+        final Matcher matcher = PAGE_PATH_PATTERN.matcher(scriptLine);
+        return matcher.find() ? matcher.group() : null;
+    }
+}
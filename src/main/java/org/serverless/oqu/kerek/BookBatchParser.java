@@ -0,0 +1,145 @@
+package org.serverless.oqu.kerek;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.serverless.oqu.kerek.model.BookInfo;
+import org.serverless.oqu.kerek.model.BookRequestContext;
+import org.serverless.oqu.kerek.model.BookSubmissionResult;
+import org.serverless.oqu.kerek.queue.SqsBatchSender;
+import org.serverless.oqu.kerek.util.PrimingRoutines;
+import org.serverless.template.ApiGatewayEventHandler;
+import org.serverless.template.ClientException;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+import static java.util.Collections.emptyList;
+import static java.util.Optional.ofNullable;
+import static java.util.function.Predicate.not;
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getBookBatchMaxSize;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getQueueName;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getSqsBatchesInFlight;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getSqsSendMaxAttempts;
+import static org.serverless.oqu.kerek.util.URLUtils.bookViewUrl;
+import static org.serverless.oqu.kerek.util.URLUtils.extractQueryParamValue;
+
+/**
+ * Registers the books of a reading list at once. Known books are looked up in one batch, new books are registered
+ * without their info, which is fetched by the pipeline, and the requests are saved and enqueued in batches.
+ */
+public class BookBatchParser extends ApiGatewayEventHandler<BookBatchParser.BookBatchParsingRequest, List<BookSubmissionResult>> {
+
+    static {
+        initSqsAsyncClient();
+        initBookRepository();
+        registerPriming("json", PrimingRoutines::json);
+        registerPriming("bookMapper", PrimingRoutines::bookMapper);
+    }
+
+    private static final SqsBatchSender sqsBatchSender = new SqsBatchSender(sqsAsync, getSqsBatchesInFlight(), getSqsSendMaxAttempts());
+
+    public BookBatchParser() {
+        super(BookBatchParser.BookBatchParsingRequest.class);
+    }
+
+    @Override
+    protected List<BookSubmissionResult> doHandleRequest(final BookBatchParsingRequest request, final Context context) throws InterruptedException {
+        final var urls = ofNullable(request).map(BookBatchParsingRequest::getUrls).orElse(emptyList());
+        if (urls.isEmpty() || urls.size() > getBookBatchMaxSize()) {
+            throw new ClientException(400, format("The number of URLs must be between 1 and %d", getBookBatchMaxSize()));
+        }
+
+        final var bookIds = new LinkedHashMap<String, String>();
+        final var errors = new HashMap<String, String>();
+        for (final var url : urls) {
+            try {
+                bookIds.put(url, extractQueryParamValue(url, "brId"));
+            } catch (ClientException e) {
+                errors.put(url, e.getMessage());
+            }
+        }
+
+        final var uniqueBookIds = bookIds.values().stream().distinct().collect(toList());
+        final var books = findBooks(uniqueBookIds);
+        final var newBooks = uniqueBookIds.stream()
+                .filter(not(books::containsKey))
+                .map(BookInfo::pending)
+                .collect(toList());
+        final var registered = bookRepository.registerBooks(newBooks);
+        final var registeredBookIds = new ArrayList<String>();
+        final var concurrentlyRegisteredBookIds = new ArrayList<String>();
+        for (final var book : newBooks) {
+            if (registered.contains(book.getId())) {
+                registeredBookIds.add(book.getId());
+                books.put(book.getId(), book);
+            } else {
+                concurrentlyRegisteredBookIds.add(book.getId());
+            }
+        }
+        // Concurrent requests have registered the rest of the books and started loading their pages
+        final var concurrentlyRegisteredBooks = findBooks(concurrentlyRegisteredBookIds);
+        for (final var bookId : concurrentlyRegisteredBookIds) {
+            books.put(bookId, concurrentlyRegisteredBooks.getOrDefault(bookId, BookInfo.pending(bookId)));
+        }
+        bookRepository.saveNewRequests(uniqueBookIds.stream().map(this::requestContext).collect(toList()));
+        sendMessagesToQueue(registeredBookIds);
+        log(context, "Submitted %d books, %d of them new, %d URLs are invalid", uniqueBookIds.size(), registeredBookIds.size(), errors.size());
+
+        return urls.stream()
+                .map(url -> BookSubmissionResult.builder()
+                        .url(url)
+                        .book(books.get(bookIds.get(url)))
+                        .error(errors.get(url))
+                        .build())
+                .collect(toList());
+    }
+
+    private Map<String, BookInfo> findBooks(final List<String> bookIds) {
+        final var books = new HashMap<String, BookInfo>();
+        if (!bookIds.isEmpty()) {
+            bookRepository.findByBookIds(bookIds).forEach(book -> books.put(book.getId(), book));
+        }
+        return books;
+    }
+
+    private BookRequestContext requestContext(final String bookId) {
+        return BookRequestContext.builder()
+                .bookId(bookId)
+                .userEmail(email())
+                .requestedAt(OffsetDateTime.now())
+                .build();
+    }
+
+    private void sendMessagesToQueue(final List<String> bookIds) throws InterruptedException {
+        final var entries = bookIds.stream()
+                .map(bookId -> SendMessageBatchRequestEntry.builder()
+                        .id(randomUUID().toString())
+                        .messageBody(bookViewUrl(bookId))
+                        .build());
+        final var result = sqsBatchSender.send(getQueueName(), entries);
+        if (result.getFailed() > 0) {
+            throw new IllegalStateException(format("Failed to enqueue %d of %d books", result.getFailed(), bookIds.size()));
+        }
+    }
+
+    @Override
+    protected BookBatchParsingRequest getRequestData(final APIGatewayProxyRequestEvent input) {
+        return gson.fromJson(input.getBody(), inputType);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    static class BookBatchParsingRequest {
+        private final List<String> urls;
+    }
+}
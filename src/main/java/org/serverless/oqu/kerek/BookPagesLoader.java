@@ -2,49 +2,109 @@ package org.serverless.oqu.kerek;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import org.serverless.oqu.kerek.http.OriginResponse;
+import org.serverless.oqu.kerek.http.RequestHedger;
+import org.serverless.oqu.kerek.storage.BookPageIndex;
+import org.serverless.oqu.kerek.util.PrimingRoutines;
 import org.serverless.template.SqsEventHandler;
+import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 
-import java.net.URL;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.Map;
 
+import static java.lang.Long.parseLong;
+import static java.lang.String.format;
 import static java.util.Collections.emptyMap;
-import static org.apache.commons.io.IOUtils.toByteArray;
 import static org.serverless.oqu.kerek.util.EnvironmentUtils.getBooksBucketName;
-import static software.amazon.awssdk.core.sync.RequestBody.fromBytes;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getPageHedgingMaxExtraLoadPercent;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getPageHedgingMinDelayMillis;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getPageHedgingPercentile;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getPageMaxBufferBytes;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.isPageHedgingEnabled;
+import static org.serverless.template.Metrics.PAGES_LOADED;
+import static org.serverless.template.Metrics.S3_PUT_BYTES;
+import static org.serverless.template.Metrics.metrics;
+import static software.amazon.awssdk.core.sync.RequestBody.empty;
 import static software.amazon.awssdk.utils.StringUtils.isBlank;
 
 public class BookPagesLoader extends SqsEventHandler {
 
+    private static final RequestHedger hedger = isPageHedgingEnabled()
+            ? new RequestHedger(getPageHedgingPercentile(), getPageHedgingMaxExtraLoadPercent() / 100.0, getPageHedgingMinDelayMillis(), 20)
+            : RequestHedger.disabled();
+
     static {
         initS3Client();
+        initOriginClient();
+        initBookRepository();
+        registerPriming("bookMapper", PrimingRoutines::bookMapper);
     }
 
     @Override
-    protected Void doHandleRequest(final SQSEvent.SQSMessage input, final Context context) {
-       try {
-           log(context, "Starting processing SQS message (ID = %s)", input.getMessageId());
-           final var filepath = getMessageAttributeOrDefault(input, "filepath", "");
-           final var contentType = getMessageAttributeOrDefault(input, "content-type", null);
-
-           try (final var bookPageImage = new URL(input.getBody()).openStream()) {
-               final var request = PutObjectRequest.builder()
-                       .bucket(getBooksBucketName())
-                       .key(filepath)
-                       .metadata(buildObjectMetadata(contentType))
-                       .build();
-
-               s3Client.putObject(request, fromBytes(toByteArray(bookPageImage)));
-           }
-           log(context, "Completed processing SQS message (ID = %s)", input.getMessageId());
-       } catch (Exception e) {
-           log(context, "Error occurred while processing request SQS message (ID = %s): %s", input.getMessageId(), e.getMessage());
-       }
+    protected Void doHandleRequest(final SQSEvent.SQSMessage input, final Context context) throws IOException {
+        log(context, "Starting processing SQS message (ID = %s)", input.getMessageId());
+        final var filepath = getMessageAttributeOrDefault(input, "filepath", "");
+        final var contentType = getMessageAttributeOrDefault(input, "content-type", null);
+        final var loadingAttempt = parseLong(getMessageAttributeOrDefault(input, "loading-attempt", "1"));
+        final var start = System.currentTimeMillis();
+        final var allocatedBefore = currentThreadAllocatedBytes();
+
+        final long pageSize;
+        try (final var bookPageImage = hedger.execute(() -> originClient.get(input.getBody()))) {
+            final var body = buildRequestBody(bookPageImage, input.getBody());
+            final var request = PutObjectRequest.builder()
+                    .bucket(getBooksBucketName())
+                    .key(filepath)
+                    .contentType(isBlank(contentType) ? bookPageImage.contentType().orElse(null) : contentType)
+                    .metadata(buildObjectMetadata(contentType))
+                    .build();
+
+            s3Client.putObject(request, body);
+            pageSize = body.contentLength();
+        }
+        metrics().count(PAGES_LOADED, 1);
+        metrics().countBytes(S3_PUT_BYTES, pageSize);
+        log(context, "Loaded page %s (%d bytes) in %d ms, %d bytes allocated", filepath, pageSize,
+                System.currentTimeMillis() - start, currentThreadAllocatedBytes() - allocatedBefore);
+
+        final var bookId = filepath.split("/")[0];
+        if (bookRepository.registerLoadedPage(bookId, loadingAttempt, filepath)) {
+            log(context, "All pages of book %s have been loaded", bookId);
+            s3Client.putObject(b -> b.bucket(getBooksBucketName()).key(new BookPageIndex(s3Client, getBooksBucketName(), bookId).pagesReadyKey()), empty());
+        }
+        log(context, "Completed processing SQS message (ID = %s), origin metrics: %s", input.getMessageId(), originClient.metrics());
         return null;
     }
 
+    /**
+     * Streams the origin response straight into the upload when its length is known,
+     * otherwise buffers it, failing if the page is larger than the configured limit.
+     */
+    private RequestBody buildRequestBody(final OriginResponse response, final String url) throws IOException {
+        final var contentLength = response.contentLength();
+        if (contentLength.isPresent()) {
+            return RequestBody.fromInputStream(response.body(), contentLength.getAsLong());
+        }
+
+        final var maxBytes = getPageMaxBufferBytes();
+        final var bytes = response.body().readNBytes(maxBytes + 1);
+        if (bytes.length > maxBytes) throw new IOException(format("Page %s is larger than %d bytes", url, maxBytes));
+        return RequestBody.fromInputStream(new ByteArrayInputStream(bytes), bytes.length);
+    }
+
     private Map<String, String> buildObjectMetadata(final String contentType) {
         if (!isBlank(contentType)) return Map.of("Content-Type", contentType);
         return emptyMap();
     }
+
+    private static long currentThreadAllocatedBytes() {
+        final var threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
 }
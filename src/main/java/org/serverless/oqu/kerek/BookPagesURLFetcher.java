@@ -2,93 +2,130 @@ package org.serverless.oqu.kerek;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.SQSEvent;
-import org.serverless.template.ClientException;
+import lombok.extern.slf4j.Slf4j;
+import org.serverless.oqu.kerek.model.BookInfo;
+import org.serverless.oqu.kerek.queue.SqsBatchSender;
+import org.serverless.oqu.kerek.storage.BookPageIndex;
+import org.serverless.oqu.kerek.util.HtmlParseUtils;
+import org.serverless.oqu.kerek.util.PrimingRoutines;
 import org.serverless.template.SqsEventHandler;
-import software.amazon.awssdk.services.s3.model.S3Object;
 import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
-import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
 import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Optional;
+import java.util.stream.IntStream;
 
 import static java.lang.String.format;
-import static java.util.Map.Entry.comparingByKey;
 import static java.util.Objects.nonNull;
-import static java.util.Objects.requireNonNull;
 import static java.util.UUID.randomUUID;
-import static java.util.stream.Collectors.*;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static org.apache.commons.io.FilenameUtils.*;
+import static org.serverless.oqu.kerek.storage.BookPageIndex.LAST_PAGE_NAME;
 import static org.serverless.oqu.kerek.util.EnvironmentUtils.getBooksBucketName;
 import static org.serverless.oqu.kerek.util.EnvironmentUtils.getQueueName;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getSqsBatchesInFlight;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getSqsSendMaxAttempts;
+import static org.serverless.oqu.kerek.util.HtmlParseUtils.fetchBookInfoById;
 import static org.serverless.oqu.kerek.util.HtmlParseUtils.parseBookPagesUrls;
 import static org.serverless.oqu.kerek.util.URLUtils.extractQueryParamValue;
 import static software.amazon.awssdk.utils.StringUtils.isBlank;
 
+@Slf4j
 public class BookPagesURLFetcher extends SqsEventHandler {
 
     static {
         initS3Client();
-        initSqsClient();
+        initSqsAsyncClient();
+        initBookRepository();
+        initOriginClient();
+        registerPriming("bookMapper", PrimingRoutines::bookMapper);
+        registerPriming("bookPage", HtmlParseUtils::prime);
     }
 
-    @Override
-    protected Void doHandleRequest(SQSEvent.SQSMessage input, Context context) {
-        try {
-            log(context, "Starting processing SQS message (ID = %s)", input.getMessageId());
-            final var bookId = extractQueryParamValue(input.getBody(), "brId");
+    private static final SqsBatchSender sqsBatchSender = new SqsBatchSender(sqsAsync, getSqsBatchesInFlight(), getSqsSendMaxAttempts());
 
-            if (bookExists(getBooksBucketName(), bookId)) {
-                log(context, "Book with ID %s has already been loaded", bookId);
-                initBookRepository();
-                bookRepository.updateBookStatus(bookId, "Ready");
-                return null;
-            }
+    @Override
+    protected Void doHandleRequest(SQSEvent.SQSMessage input, Context context) throws InterruptedException {
+        log(context, "Starting processing SQS message (ID = %s)", input.getMessageId());
+        final var bookId = extractQueryParamValue(input.getBody(), "brId");
+        if (!fetchPendingBookInfo(bookId, context)) return null;
+
+        if (bookExists(getBooksBucketName(), bookId)) {
+            log(context, "Book with ID %s has already been loaded", bookId);
+            bookRepository.updateBookStatus(bookId, "Ready");
+            return null;
+        }
 
-            final var pages = parseBookPagesUrls(input.getBody());
+        final var pages = parseBookPagesUrls(input.getBody(), originClient);
 
-            if (pages.isEmpty()) throw new ClientException(404, "Pages URLs have not been found on the given URL");
+        if (pages.isEmpty()) {
+            // Retrying cannot bring the pages back, so the book is failed like a book missing from the origin
+            bookRepository.updateBookStatus(bookId, "Failed");
+            log(context, "Pages of book %s have not been found on the origin", bookId);
+            return null;
+        }
 
-            sendMessagesToSqs(pages, bookId);
-            log(context, "Completed processing SQS message (ID = %s)", input.getMessageId());
-        } catch (Exception e) {
-            log(context, "Error occurred while processing request SQS message (ID = %s): %s", input.getMessageId(), e.getMessage());
+        final var result = sendMessagesToSqs(pages, bookId);
+        log(context, "Enqueued %d of %d pages of book %s", result.getEnqueued(), result.getEnqueued() + result.getFailed(), bookId);
+        if (result.getFailed() > 0) {
+            throw new IllegalStateException(format("Failed to enqueue %d pages of book %s", result.getFailed(), bookId));
         }
+        log(context, "Completed processing SQS message (ID = %s), origin metrics: %s", input.getMessageId(), originClient.metrics());
         return null;
     }
 
-    private void sendMessagesToSqs(final List<String> pages, final String bookId) {
-        final var queueUrl = getQueueName();
-        final var pagesWithoutLastOne = pages.subList(0, pages.size() - 1);
-        final var lastPage = pages.get(pages.size() - 1);
-        final var chuckedPages = chuckList(pagesWithoutLastOne, SQS_BATCH_REQUEST_LIMIT);
-
-        for (final var urls : chuckedPages) {
-            final var entries = urls.stream()
-                    .map(pageUrl -> buildSendMessageRequest(pageUrl, bookId))
-                    .filter(Objects::nonNull)
-                    .collect(toList());
-            final var sqsBatchRequest = SendMessageBatchRequest.builder()
-                    .queueUrl(queueUrl)
-                    .entries(entries)
-                    .build();
-            sqs.sendMessageBatch(sqsBatchRequest);
+    /**
+     * Books registered asynchronously are saved without their info, so it is fetched before the pages.
+     * A book the origin does not have is marked as failed. If the info cannot be fetched for another reason,
+     * the message is retried and the book stays pending, to be enqueued again by a later request if it is lost.
+     *
+     * @return {@code false} if the book does not exist, so its pages are not to be loaded
+     */
+    private boolean fetchPendingBookInfo(final String bookId, final Context context) {
+        final var book = bookRepository.findByBookId(bookId);
+        if (book.isEmpty() || !"Pending".equals(book.get().getStatus())) return true;
+
+        final Optional<BookInfo> bookInfo;
+        try {
+            bookInfo = fetchBookInfoById(bookId, originClient);
+        } catch (IOException e) {
+            throw new IllegalStateException(format("Failed to fetch the info of book %s", bookId), e);
+        }
+        if (bookInfo.isEmpty()) {
+            bookRepository.updateBookStatus(bookId, "Failed");
+            log(context, "Book %s has not been found on the origin", bookId);
+            return false;
         }
+        bookRepository.updateBookInfo(bookInfo.get());
+        log(context, "Fetched the info of book %s", bookId);
+        return true;
+    }
+
+    private SqsBatchSender.Result sendMessagesToSqs(final List<String> pages, final String bookId) throws InterruptedException {
+        final var lastPageIndex = pages.size() - 1;
+        final var entries = IntStream.range(0, pages.size())
+                .mapToObj(i -> buildSendMessageRequest(pages.get(i), bookId, i == lastPageIndex ? LAST_PAGE_NAME : null))
+                .filter(Objects::nonNull)
+                .collect(toList());
+
+        // Pages are loaded in parallel, and the loader completing the expected number of pages triggers the assembly
+        final var attempt = stringMessageAttribute(String.valueOf(bookRepository.startPagesLoading(bookId, entries.size())));
 
-        sqs.sendMessageBatch(
-                SendMessageBatchRequest.builder()
-                        .queueUrl(queueUrl)
-                        .entries(List.of(requireNonNull(buildSendMessageRequest(lastPage, bookId, "last"))))
-                        .build()
-        );
+        return sqsBatchSender.send(getQueueName(), entries.stream().map(entry -> withLoadingAttempt(entry, attempt)));
     }
 
-    private SendMessageBatchRequestEntry buildSendMessageRequest(final String pageUrl, final String bookId) {
-        return buildSendMessageRequest(pageUrl, bookId, null);
+    private static SendMessageBatchRequestEntry withLoadingAttempt(final SendMessageBatchRequestEntry entry, final MessageAttributeValue attempt) {
+        final var messageAttributes = new HashMap<>(entry.messageAttributes());
+        messageAttributes.put("loading-attempt", attempt);
+        return entry.toBuilder().messageAttributes(messageAttributes).build();
     }
 
     private SendMessageBatchRequestEntry buildSendMessageRequest(final String pageUrl, final String bookId, final String filename) {
@@ -110,31 +147,17 @@ public class BookPagesURLFetcher extends SqsEventHandler {
                     ));
             return SendMessageBatchRequestEntry.builder()
                     .id(randomUUID().toString())
-                    .messageGroupId(bookId)
                     .messageBody(url.toString())
                     .messageAttributes(messageAttributes)
                     .build();
         } catch (MalformedURLException e) {
-            System.err.printf("Error occurred while trying to parse URL %s : %s%n", pageUrl, e.getMessage());
+            log.warn("Skipping page {} of book {}, its URL cannot be parsed: {}", pageUrl, bookId, e.getMessage());
         }
         return null;
     }
 
-    private List<List<String>> chuckList(final List<String> pages, final Integer chunkSize) {
-        AtomicInteger index = new AtomicInteger(0);
-        return pages.stream().collect(groupingBy(x -> index.getAndIncrement() / chunkSize))
-                .entrySet().stream()
-                .sorted(comparingByKey())
-                .map(Map.Entry::getValue)
-                .collect(toList());
-    }
-
     private boolean bookExists(final String bucketName, final String directory) {
-        return s3Client.listObjectsV2(r -> r.bucket(bucketName).prefix(directory))
-                .contents()
-                .stream()
-                .map(S3Object::key)
-                .anyMatch(key -> key.endsWith(".pdf"));
+        return new BookPageIndex(s3Client, bucketName, directory).hasPdf();
     }
 
     private MessageAttributeValue stringMessageAttribute(final String value) {
@@ -143,6 +166,4 @@ public class BookPagesURLFetcher extends SqsEventHandler {
                 .stringValue(value)
                 .build();
     }
-
-    private static final Integer SQS_BATCH_REQUEST_LIMIT = 10;
 }
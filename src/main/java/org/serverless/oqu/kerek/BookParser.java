@@ -4,16 +4,24 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.serverless.oqu.kerek.cache.TtlCache;
 import org.serverless.oqu.kerek.model.BookInfo;
 import org.serverless.oqu.kerek.model.BookRequestContext;
+import org.serverless.oqu.kerek.util.HtmlParseUtils;
+import org.serverless.oqu.kerek.util.PrimingRoutines;
 import org.serverless.template.ApiGatewayEventHandler;
 
 import java.time.OffsetDateTime;
 import java.util.Optional;
 
-import static java.lang.String.format;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getBookCacheMaxSize;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getBookCachePendingTtl;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getPendingBookRetryAfter;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getBookCacheReadyTtl;
 import static org.serverless.oqu.kerek.util.EnvironmentUtils.getQueueName;
-import static org.serverless.oqu.kerek.util.HtmlParseUtils.parseBookInfo;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.isAsyncBookRegistrationEnabled;
+import static org.serverless.oqu.kerek.util.HtmlParseUtils.parseBookInfoById;
+import static org.serverless.oqu.kerek.util.URLUtils.bookViewUrl;
 import static org.serverless.oqu.kerek.util.URLUtils.extractQueryParamValue;
 
 public class BookParser extends ApiGatewayEventHandler<BookParser.BookParsingRequest, BookInfo> {
@@ -21,8 +29,15 @@ public class BookParser extends ApiGatewayEventHandler<BookParser.BookParsingReq
     static {
         initSqsClient();
         initBookRepository();
+        initOriginClient();
+        registerPriming("json", PrimingRoutines::json);
+        registerPriming("bookMapper", PrimingRoutines::bookMapper);
+        registerPriming("bookPage", HtmlParseUtils::prime);
     }
 
+    private static final TtlCache<String, BookInfo> bookCache = new TtlCache<>(getBookCacheMaxSize());
+    private static final boolean asyncRegistration = isAsyncBookRegistrationEnabled();
+
     public BookParser() {
         super(BookParser.BookParsingRequest.class);
     }
@@ -30,21 +45,67 @@ public class BookParser extends ApiGatewayEventHandler<BookParser.BookParsingReq
     @Override
     protected BookInfo doHandleRequest(final BookParsingRequest request, final Context context) {
         final var bookId = extractBookIdFromUrl(request);
-        return bookRepository.findByBookId(bookId)
+        final var bookInfo = findBook(bookId)
                 .map(this::saveRequestInfo)
+                .map(this::enqueueIfStale)
                 .orElseGet(() -> processNewBook(bookId));
+        log(context, "Book cache: %s, origin metrics: %s", bookCache.stats(), originClient.metrics());
+        return bookInfo;
+    }
+
+    /**
+     * A book registered without its info is accepted, the pipeline fetches the info before loading the pages.
+     */
+    @Override
+    protected int statusCode(final BookParsingRequest request, final BookInfo bookInfo) {
+        return bookInfo != null && "Pending".equals(bookInfo.getStatus()) ? 202 : 200;
+    }
+
+    private Optional<BookInfo> findBook(final String bookId) {
+        final var cached = bookCache.get(bookId);
+        if (cached.isPresent()) return cached;
+
+        final var bookInfo = bookRepository.findByBookId(bookId);
+        bookInfo.ifPresent(this::cacheBookInfo);
+        return bookInfo;
+    }
+
+    /**
+     * Ready is the final status, so ready books are cached for long. The status of other books is changed
+     * by the pipeline, so they are cached briefly to pick up the Ready status soon.
+     */
+    private void cacheBookInfo(final BookInfo bookInfo) {
+        final var ttl = "Ready".equals(bookInfo.getStatus()) ? getBookCacheReadyTtl() : getBookCachePendingTtl();
+        bookCache.put(bookInfo.getId(), bookInfo, ttl);
     }
 
+    /**
+     * In the async mode the book is registered with a placeholder, so the response does not wait for the origin.
+     */
     private BookInfo processNewBook(String bookId) {
-        final var bookInfo = fetchBookInfo(bookId);
+        final var bookInfo = asyncRegistration ? Optional.of(BookInfo.pending(bookId)) : fetchBookInfo(bookId);
         if (bookInfo.isEmpty()) {
             return null;
         }
-        saveBookInfoInDb(bookInfo.get());
+        if (!registerBookInDb(bookInfo.get())) {
+            // A concurrent request has registered the book and started loading its pages
+            return bookRepository.findByBookId(bookId).orElse(bookInfo.get());
+        }
+        cacheBookInfo(bookInfo.get());
         sendMessageToQueue(bookId);
         return bookInfo.get();
     }
 
+    /**
+     * A book left pending for longer than the pipeline retries, e.g. because the origin was down, is enqueued again.
+     */
+    private BookInfo enqueueIfStale(final BookInfo bookInfo) {
+        if ("Pending".equals(bookInfo.getStatus()) && bookRepository.claimStalePendingBook(bookInfo.getId(), getPendingBookRetryAfter())) {
+            sendMessageToQueue(bookInfo.getId());
+        }
+        return bookInfo;
+    }
+
     private String extractBookIdFromUrl(final BookParsingRequest request) {
         return extractQueryParamValue(request.url, "brId");
     }
@@ -59,29 +120,21 @@ public class BookParser extends ApiGatewayEventHandler<BookParser.BookParsingReq
         return bookInfo;
     }
 
-    private void saveBookInfoInDb(final BookInfo bookInfo) {
+    private boolean registerBookInDb(final BookInfo bookInfo) {
         final var requestContext = BookRequestContext.builder()
                 .bookId(bookInfo.getId())
                 .userEmail(email())
                 .requestedAt(OffsetDateTime.now())
                 .build();
-        bookRepository.saveNewBook(bookInfo, requestContext);
+        return bookRepository.registerNewBook(bookInfo, requestContext);
     }
 
     private Optional<BookInfo> fetchBookInfo(final String bookId) {
-        return parseBookInfo(format("https://kazneb.kz/ru/catalogue/view/%s", bookId))
-                .map(bookShortInfo -> BookInfo.builder()
-                        .id(bookId)
-                        .title(bookShortInfo.getTitle())
-                        .author(bookShortInfo.getAuthor())
-                        .imageUrl(bookShortInfo.getImageUrl())
-                        .build()
-                );
+        return parseBookInfoById(bookId, originClient);
     }
 
     private void sendMessageToQueue(final String bookId) {
-        final var bookUrl = format("https://kazneb.kz/ru/bookView/view?brId=%s&simple=true", bookId);
-        sqs.sendMessage(m -> m.queueUrl(getQueueName()).messageBody(bookUrl).build());
+        sqs.sendMessage(m -> m.queueUrl(getQueueName()).messageBody(bookViewUrl(bookId)).build());
     }
 
     @Override
@@ -0,0 +1,84 @@
+package org.serverless.oqu.kerek;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import org.serverless.oqu.kerek.pdf.BookPdfMerger;
+import org.serverless.oqu.kerek.pdf.BookPdfRenderer;
+import org.serverless.oqu.kerek.pdf.SegmentedAssembly;
+import org.serverless.oqu.kerek.queue.SqsBatchSender;
+import org.serverless.oqu.kerek.storage.BookPageIndex;
+import org.serverless.oqu.kerek.storage.S3ObjectUploader;
+import org.serverless.template.SqsEventHandler;
+
+import java.io.IOException;
+
+import static java.lang.Integer.parseInt;
+import static org.serverless.oqu.kerek.pdf.BookSegments.*;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.*;
+
+public class BookSegmentAssembler extends SqsEventHandler {
+
+    static {
+        initS3Client();
+        initSqsAsyncClient();
+        registerPriming("pdf", BookPdfRenderer::prime);
+    }
+
+    private static final SqsBatchSender sqsBatchSender = new SqsBatchSender(sqsAsync, getSqsBatchesInFlight(), getSqsSendMaxAttempts());
+
+    @Override
+    protected Void doHandleRequest(final SQSEvent.SQSMessage input, final Context context) throws IOException, InterruptedException {
+        log(context, "Starting processing SQS message (ID = %s)", input.getMessageId());
+        final var bookId = input.getBody();
+        final var segments = parseInt(getMessageAttributeOrDefault(input, SEGMENTS, "1"));
+
+        if (MERGE.equals(getMessageAttributeOrDefault(input, TYPE, SEGMENT))) {
+            mergeSegments(bookId, segments, context);
+        } else {
+            final var segment = parseInt(getMessageAttributeOrDefault(input, SEGMENT, "0"));
+            final var segmentSize = parseInt(getMessageAttributeOrDefault(input, SEGMENT_SIZE, "0"));
+            assembleSegment(bookId, segment, segments, segmentSize, context);
+        }
+        log(context, "Completed processing SQS message (ID = %s)", input.getMessageId());
+        return null;
+    }
+
+    @Override
+    protected boolean isOrderedByMessageGroup() {
+        return true;
+    }
+
+    private void assembleSegment(final String bookId, final int segment, final int segments, final int segmentSize, final Context context) throws IOException, InterruptedException {
+        final var bucketName = getBooksBucketName();
+        final var pages = segmentPages(new BookPageIndex(s3Client, bucketName, bookId).sortedPages(), segment, segmentSize);
+        final var from = segment * segmentSize;
+        final var isLastSegment = segment == segments - 1;
+
+        log(context, "Assembling segment %d of %d (pages %d-%d) of book %s", segment + 1, segments, from + 1, from + pages.size(), bookId);
+        final var renderer = new BookPdfRenderer(s3Client, bucketName);
+        new S3ObjectUploader(s3Client, bucketName).upload(segmentKey(bookId, segment), "application/pdf",
+                output -> renderer.render(pages, isLastSegment, output));
+
+        if (segmentedAssembly(bucketName).requestMergeIfComplete(bookId, segments)) {
+            log(context, "All %d segments of book %s have been assembled", segments, bookId);
+        }
+    }
+
+    private void mergeSegments(final String bookId, final int segments, final Context context) throws IOException {
+        final var bucketName = getBooksBucketName();
+        final var segmentKeys = segmentedAssembly(bucketName).segmentKeys(bookId);
+        if (segmentKeys.size() != segments) {
+            log(context, "Only %d of %d segments of book %s exist, skipping merge", segmentKeys.size(), segments, bookId);
+            return;
+        }
+
+        final var merger = new BookPdfMerger(s3Client, bucketName);
+        final var bookPdfKey = new BookPageIndex(s3Client, bucketName, bookId).bookPdfKey();
+        new S3ObjectUploader(s3Client, bucketName).upload(bookPdfKey, "application/pdf",
+                output -> merger.merge(segmentKeys, output));
+    }
+
+    private static SegmentedAssembly segmentedAssembly(final String bucketName) {
+        return new SegmentedAssembly(s3Client, bucketName, sqsBatchSender, getSegmentsQueueName());
+    }
+}
@@ -0,0 +1,134 @@
+package org.serverless.oqu.kerek;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.serverless.oqu.kerek.model.BookStatus;
+import org.serverless.oqu.kerek.repo.BookRepository;
+import org.serverless.oqu.kerek.util.PrimingRoutines;
+import org.serverless.template.ApiGatewayEventHandler;
+import org.serverless.template.ClientException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNullElse;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getStatusMaxWait;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getStatusPollInterval;
+
+/**
+ * Tells the status and the loading progress of a book. The ETag of the response is the version of the status,
+ * so a client sending it back in If-None-Match gets 304 while nothing has changed. With the {@code wait} parameter
+ * the request is held for up to the given number of seconds until the status changes.
+ */
+public class BookStatusAccessor extends ApiGatewayEventHandler<BookStatusAccessor.BookStatusRequest, BookStatus> {
+
+    static {
+        initBookRepository();
+        registerPriming("json", PrimingRoutines::json);
+        registerPriming("bookMapper", PrimingRoutines::bookMapper);
+    }
+
+    private final BookRepository repository;
+
+    public BookStatusAccessor() {
+        this(bookRepository);
+    }
+
+    BookStatusAccessor(final BookRepository repository) {
+        super(BookStatusRequest.class);
+        this.repository = repository;
+    }
+
+    @Override
+    protected BookStatusRequest getRequestData(final APIGatewayProxyRequestEvent input) {
+        final var headers = requireNonNullElse(input.getHeaders(), Map.<String, String>of());
+        final var parameters = requireNonNullElse(input.getQueryStringParameters(), Map.<String, String>of());
+        final var ifNoneMatch = headers.entrySet()
+                .stream()
+                .filter(e -> "If-None-Match".equalsIgnoreCase(e.getKey()))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+        return new BookStatusRequest(input.getPathParameters().get("bookId"), ifNoneMatch, parseWait(parameters.get("wait")));
+    }
+
+    @Override
+    protected BookStatus doHandleRequest(final BookStatusRequest request, final Context context) throws InterruptedException {
+        var status = findBookStatus(request.bookId);
+
+        final var pollInterval = getStatusPollInterval().toMillis();
+        final var deadline = System.currentTimeMillis() + Math.min(request.waitSeconds, getStatusMaxWait().toSeconds()) * 1000;
+        while (isNotModified(request, status) && !isFinal(status) && System.currentTimeMillis() + pollInterval <= deadline) {
+            Thread.sleep(pollInterval);
+            status = findBookStatus(request.bookId);
+        }
+        log(context, "Status of book %s is %s, version %d", request.bookId, status.getStatus(), status.getVersion());
+        return status;
+    }
+
+    @Override
+    protected int statusCode(final BookStatusRequest request, final BookStatus status) {
+        return isNotModified(request, status) ? 304 : 200;
+    }
+
+    @Override
+    protected String toJson(final BookStatusRequest request, final BookStatus status) {
+        return isNotModified(request, status) ? "" : super.toJson(request, status);
+    }
+
+    @Override
+    protected Map<String, String> headers(final BookStatusRequest request, final BookStatus status) {
+        final var headers = new HashMap<>(this.headers);
+        headers.put("ETag", etag(status));
+        headers.put("Cache-Control", "no-cache");
+        headers.put("Access-Control-Expose-Headers", "ETag");
+        return headers;
+    }
+
+    private BookStatus findBookStatus(final String bookId) {
+        return repository.findBookStatus(bookId)
+                .orElseThrow(() -> new ClientException(404, format("Book with ID %s has not found", bookId)));
+    }
+
+    private static boolean isNotModified(final BookStatusRequest request, final BookStatus status) {
+        if (request.ifNoneMatch == null) return false;
+        final var etag = etag(status);
+        for (final var candidate : request.ifNoneMatch.split(",")) {
+            final var value = candidate.trim();
+            if ("*".equals(value) || etag.equals(value.startsWith("W/") ? value.substring(2) : value)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Neither a ready book nor a book missing from the origin changes any more.
+     */
+    private static boolean isFinal(final BookStatus status) {
+        return "Ready".equals(status.getStatus()) || "Failed".equals(status.getStatus());
+    }
+
+    private static String etag(final BookStatus status) {
+        return format("\"%s-%d\"", status.getBookId(), status.getVersion());
+    }
+
+    private static int parseWait(final String wait) {
+        if (wait == null || wait.isBlank()) return 0;
+        try {
+            final var value = Integer.parseInt(wait.trim());
+            if (value >= 0) return value;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new ClientException(400, format("The wait must be a non-negative number of seconds, but was %s", wait));
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    static class BookStatusRequest {
+        private final String bookId;
+        private final String ifNoneMatch;
+        private final int waitSeconds;
+    }
+}
@@ -2,58 +2,122 @@ package org.serverless.oqu.kerek;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.serverless.oqu.kerek.cache.TtlCache;
 import org.serverless.oqu.kerek.model.BookDownloadLink;
+import org.serverless.oqu.kerek.storage.BookPageIndex;
+import org.serverless.oqu.kerek.util.PrimingRoutines;
 import org.serverless.template.ApiGatewayEventHandler;
 import org.serverless.template.ClientException;
-import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 
 import java.net.URL;
-import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 import static java.lang.String.format;
+import static java.util.Objects.requireNonNullElse;
 import static org.serverless.oqu.kerek.util.EnvironmentUtils.getBooksBucketName;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getDownloadLinkCacheMaxSize;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getDownloadLinkCacheTtl;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getDownloadLinkDuration;
 
-public class DownloadLinkGenerator extends ApiGatewayEventHandler<String, BookDownloadLink> {
+public class DownloadLinkGenerator extends ApiGatewayEventHandler<DownloadLinkGenerator.DownloadLinkRequest, BookDownloadLink> {
 
     static {
         initS3Client();
         initS3Presigner();
+        registerPriming("json", PrimingRoutines::json);
     }
 
+    /**
+     * Links signed by this execution environment. A cached link implies the book exists, so it is served without any S3 request.
+     * A link stops working once the temporary credentials of the function which signed it expire, whatever its duration,
+     * so links are cached for much shorter than their duration, well within the lifetime of the credentials.
+     */
+    private static final TtlCache<String, URL> linkCache = new TtlCache<>(getDownloadLinkCacheMaxSize());
+
+    private final S3Client s3;
+    private final S3Presigner presigner;
+    private final TtlCache<String, URL> cache;
+
     public DownloadLinkGenerator() {
-        super(String.class);
+        this(s3Client, s3Presigner, linkCache);
     }
 
-    protected String getRequestData(final APIGatewayProxyRequestEvent input) {
-        return input.getPathParameters().get("bookId");
+    DownloadLinkGenerator(final S3Client s3, final S3Presigner presigner, final TtlCache<String, URL> cache) {
+        super(DownloadLinkRequest.class);
+        this.s3 = s3;
+        this.presigner = presigner;
+        this.cache = cache;
+    }
+
+    protected DownloadLinkRequest getRequestData(final APIGatewayProxyRequestEvent input) {
+        final var parameters = requireNonNullElse(input.getQueryStringParameters(), Map.<String, String>of());
+        return new DownloadLinkRequest(input.getPathParameters().get("bookId"), Boolean.parseBoolean(parameters.get("redirect")));
+    }
+
+    @Override
+    protected BookDownloadLink doHandleRequest(final DownloadLinkRequest request, final Context context) {
+        log(context, "Starting generate download link for book (ID = %s)", request.bookId);
+
+        final var cached = cache.get(request.bookId);
+        if (cached.isPresent()) return BookDownloadLink.of(cached.get());
+
+        if (!bookExists(getBooksBucketName(), request.bookId)) {
+            throw new ClientException(404, format("Book with ID %s has not found", request.bookId));
+        }
+        final var link = buildPresignedUrlToPdfFile(getBooksBucketName(), request.bookId);
+        cache.put(request.bookId, link, getDownloadLinkCacheTtl());
+        log(context, "Download link cache: %s", cache.stats());
+        return BookDownloadLink.of(link);
     }
 
+    /**
+     * In the redirect mode the browser is sent straight to the link, so the download starts without handling the JSON.
+     */
     @Override
-    protected BookDownloadLink doHandleRequest(final String bookId, final Context context) {
-        log(context, "Starting generate download link for book (ID = %s)", bookId);
-        if (bookExists(getBooksBucketName(), bookId))
-            return BookDownloadLink.of(buildPresignedUrlToPdfFile(getBooksBucketName(), bookId));
-        else throw new ClientException(404, format("Book with ID %s has not found", bookId));
+    protected int statusCode(final DownloadLinkRequest request, final BookDownloadLink link) {
+        return request.redirect ? 302 : 200;
+    }
+
+    @Override
+    protected String toJson(final DownloadLinkRequest request, final BookDownloadLink link) {
+        return request.redirect ? "" : super.toJson(request, link);
+    }
+
+    @Override
+    protected Map<String, String> headers(final DownloadLinkRequest request, final BookDownloadLink link) {
+        if (!request.redirect) return headers;
+        final var headers = new HashMap<>(this.headers);
+        headers.put("Location", link.getDownloadLink());
+        headers.put("Cache-Control", "no-store");
+        return headers;
     }
 
     private boolean bookExists(final String bucketName, final String directory) {
-        return s3Client.listObjectsV2(r -> r.bucket(bucketName).prefix(directory))
-                .contents()
-                .stream()
-                .map(S3Object::key)
-                .anyMatch(key -> key.endsWith(".pdf"));
+        return new BookPageIndex(s3, bucketName, directory).hasPdf();
     }
 
     private URL buildPresignedUrlToPdfFile(final String bucketName, final String directory) {
         final var getObjectPresignRequest = GetObjectPresignRequest.builder()
-                .signatureDuration(Duration.ofDays(3))
+                .signatureDuration(getDownloadLinkDuration())
                 .getObjectRequest(r -> r.bucket(bucketName).key(format("%s/book.pdf", directory)))
                 .build();
 
         final var presignedGetObjectRequest =
-                s3Presigner.presignGetObject(getObjectPresignRequest);
+                presigner.presignGetObject(getObjectPresignRequest);
 
         return presignedGetObjectRequest.url();
     }
+
+    @Getter
+    @RequiredArgsConstructor
+    static class DownloadLinkRequest {
+        private final String bookId;
+        private final boolean redirect;
+    }
 }
@@ -2,39 +2,90 @@ package org.serverless.oqu.kerek;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
-import org.serverless.oqu.kerek.model.BookInfo;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.serverless.oqu.kerek.model.UserHistoryPage;
+import org.serverless.oqu.kerek.util.PrimingRoutines;
 import org.serverless.template.ApiGatewayEventHandler;
+import org.serverless.template.ClientException;
 
-import java.util.List;
+import java.io.StringWriter;
+import java.util.Map;
 
+import static java.lang.String.format;
 import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNullElse;
 
-public class UserHistoryAccessor extends ApiGatewayEventHandler<String, List<BookInfo>> {
+public class UserHistoryAccessor extends ApiGatewayEventHandler<UserHistoryAccessor.UserHistoryRequest, UserHistoryPage> {
 
     static {
         initBookRepository();
+        registerPriming("json", PrimingRoutines::json);
+        registerPriming("bookMapper", PrimingRoutines::bookMapper);
     }
 
+    private static final int DEFAULT_LIMIT = 5;
+    private static final int MAX_LIMIT = 50;
+
+    private static final Gson compactGson = new GsonBuilder()
+            .disableHtmlEscaping()
+            .create();
+
     public UserHistoryAccessor() {
-        super(String.class);
+        super(UserHistoryRequest.class);
     }
 
     @Override
-    protected String getRequestData(APIGatewayProxyRequestEvent input) {
-        return null;
+    protected UserHistoryRequest getRequestData(APIGatewayProxyRequestEvent input) {
+        final var parameters = requireNonNullElse(input.getQueryStringParameters(), Map.<String, String>of());
+        return new UserHistoryRequest(parseLimit(parameters.get("limit")), parameters.get("cursor"));
     }
 
     @Override
-    protected List<BookInfo> doHandleRequest(String input, Context context) {
+    protected UserHistoryPage doHandleRequest(UserHistoryRequest input, Context context) {
         try {
             log(context, "Starting fetch books history for user (email = %s)", email());
 
-            final var bookIds = bookRepository.findBookIdsByUserEmail(email());
-            return bookRepository.findByBookIds(bookIds);
+            final var bookIdsPage = bookRepository.findBookIdsByUserEmail(email(), input.limit, input.cursor);
+            return UserHistoryPage.builder()
+                    .books(bookRepository.findByBookIds(bookIdsPage.getBookIds()))
+                    .cursor(bookIdsPage.getCursor())
+                    .build();
 
+        } catch (IllegalArgumentException e) {
+            throw new ClientException(400, e.getMessage());
         } catch (Exception e) {
             log(context, "Error occurred while books history for the user with email %s: %s", email(), e.getMessage());
         }
-        return emptyList();
+        return UserHistoryPage.builder().books(emptyList()).build();
+    }
+
+    /**
+     * History pages are read often and only by the client, so they are written without the indentation.
+     */
+    @Override
+    protected String toJson(final UserHistoryRequest request, final UserHistoryPage result) {
+        final var writer = new StringWriter(256);
+        compactGson.toJson(result, UserHistoryPage.class, writer);
+        return writer.toString();
+    }
+
+    private static int parseLimit(final String limit) {
+        if (limit == null || limit.isBlank()) return DEFAULT_LIMIT;
+        try {
+            final var value = Integer.parseInt(limit.trim());
+            if (value >= 1 && value <= MAX_LIMIT) return value;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new ClientException(400, format("The limit must be a number between 1 and %d", MAX_LIMIT));
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    static class UserHistoryRequest {
+        private final int limit;
+        private final String cursor;
     }
 }
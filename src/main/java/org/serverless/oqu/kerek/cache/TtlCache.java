@@ -0,0 +1,87 @@
+package org.serverless.oqu.kerek.cache;
+
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+import static java.lang.String.format;
+
+/**
+ * Bounded in-process cache, whose entries expire after their own TTL. When the cache is full,
+ * the least recently used entry is evicted. Kept in a static field, it lives across warm invocations.
+ */
+public class TtlCache<K, V> {
+
+    private final int maxSize;
+    private final LongSupplier clock;
+    private final Map<K, Entry<V>> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public TtlCache(final int maxSize) {
+        this(maxSize, System::currentTimeMillis);
+    }
+
+    public TtlCache(final int maxSize, final LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, Entry<V>> eldest) {
+                if (size() <= TtlCache.this.maxSize) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    public synchronized Optional<V> get(final K key) {
+        final var entry = entries.get(key);
+        if (entry == null || entry.expiresAt <= clock.getAsLong()) {
+            if (entry != null) entries.remove(key);
+            misses++;
+            return Optional.empty();
+        }
+        hits++;
+        return Optional.of(entry.value);
+    }
+
+    public synchronized void put(final K key, final V value, final Duration ttl) {
+        entries.put(key, new Entry<>(value, clock.getAsLong() + ttl.toMillis()));
+    }
+
+    public synchronized void invalidate(final K key) {
+        entries.remove(key);
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return counters of the cache, e.g. {@code size=10, hits=25, misses=10, evictions=0}
+     */
+    public synchronized String stats() {
+        return format("size=%d, hits=%d, misses=%d, evictions=%d", entries.size(), hits, misses, evictions);
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+    }
+}
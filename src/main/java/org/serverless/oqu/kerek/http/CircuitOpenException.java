@@ -0,0 +1,18 @@
+package org.serverless.oqu.kerek.http;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import static java.lang.String.format;
+
+@Getter
+public class CircuitOpenException extends IOException {
+    private final long openUntil;
+
+    public CircuitOpenException(final String key, final long openUntil) {
+        super(format("Circuit for %s is open until %s", key, Instant.ofEpochMilli(openUntil)));
+        this.openUntil = openUntil;
+    }
+}
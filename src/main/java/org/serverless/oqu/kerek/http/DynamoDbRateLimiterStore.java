@@ -0,0 +1,75 @@
+package org.serverless.oqu.kerek.http;
+
+import lombok.RequiredArgsConstructor;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.serverless.oqu.kerek.util.DynamoDbUtils.numberAttribute;
+import static org.serverless.oqu.kerek.util.DynamoDbUtils.stringAttribute;
+
+/**
+ * Keeps the rate limiter state in a DynamoDB table, so it is shared by all concurrent invocations.
+ */
+@RequiredArgsConstructor
+public class DynamoDbRateLimiterStore implements RateLimiterStore {
+
+    public static final String LIMITER_KEY = "LimiterKey";
+    public static final String VERSION = "Version";
+    public static final String TOKENS = "Tokens";
+    public static final String REFILLED_AT = "RefilledAt";
+    public static final String RATE = "Rate";
+    public static final String FAILURES = "Failures";
+    public static final String CIRCUIT_OPEN_UNTIL = "CircuitOpenUntil";
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+
+    @Override
+    public Optional<RateLimiterState> load(final String key) {
+        final var item = dynamoDbClient.getItem(
+                br -> br.tableName(tableName)
+                        .key(Map.of(LIMITER_KEY, stringAttribute(key)))
+                        .consistentRead(true)
+        ).item();
+        if (item == null || item.isEmpty()) return Optional.empty();
+
+        return Optional.of(RateLimiterState.builder()
+                .version(Long.parseLong(item.get(VERSION).n()))
+                .tokens(Double.parseDouble(item.get(TOKENS).n()))
+                .refilledAt(Long.parseLong(item.get(REFILLED_AT).n()))
+                .rate(Double.parseDouble(item.get(RATE).n()))
+                .failures(Integer.parseInt(item.get(FAILURES).n()))
+                .circuitOpenUntil(Long.parseLong(item.get(CIRCUIT_OPEN_UNTIL).n()))
+                .build()
+        );
+    }
+
+    @Override
+    public boolean save(final String key, final RateLimiterState state, final long expectedVersion) {
+        final var item = Map.of(
+                LIMITER_KEY, stringAttribute(key),
+                VERSION, numberAttribute(state.getVersion()),
+                TOKENS, AttributeValue.builder().n(Double.toString(state.getTokens())).build(),
+                REFILLED_AT, numberAttribute(state.getRefilledAt()),
+                RATE, AttributeValue.builder().n(Double.toString(state.getRate())).build(),
+                FAILURES, numberAttribute(state.getFailures()),
+                CIRCUIT_OPEN_UNTIL, numberAttribute(state.getCircuitOpenUntil())
+        );
+        try {
+            dynamoDbClient.putItem(
+                    br -> br.tableName(tableName)
+                            .item(item)
+                            .conditionExpression(expectedVersion == 0 ? "attribute_not_exists(#key)" : "#version = :version")
+                            .expressionAttributeNames(expectedVersion == 0 ? Map.of("#key", LIMITER_KEY) : Map.of("#version", VERSION))
+                            .expressionAttributeValues(expectedVersion == 0 ? null : Map.of(":version", numberAttribute(expectedVersion)))
+            );
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+}
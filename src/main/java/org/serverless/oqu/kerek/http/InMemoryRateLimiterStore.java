@@ -0,0 +1,28 @@
+package org.serverless.oqu.kerek.http;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps the rate limiter state in memory, so it is shared only by the threads of one execution environment.
+ * Used for tests and when no table is configured.
+ */
+public class InMemoryRateLimiterStore implements RateLimiterStore {
+
+    private final Map<String, RateLimiterState> states = new HashMap<>();
+
+    @Override
+    public synchronized Optional<RateLimiterState> load(final String key) {
+        return Optional.ofNullable(states.get(key));
+    }
+
+    @Override
+    public synchronized boolean save(final String key, final RateLimiterState state, final long expectedVersion) {
+        final var current = states.get(key);
+        final var currentVersion = current == null ? 0 : current.getVersion();
+        if (currentVersion != expectedVersion) return false;
+        states.put(key, state);
+        return true;
+    }
+}
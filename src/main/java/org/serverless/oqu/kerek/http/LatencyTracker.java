@@ -0,0 +1,42 @@
+package org.serverless.oqu.kerek.http;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latest latencies in a ring buffer to estimate their percentiles.
+ */
+public class LatencyTracker {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    public LatencyTracker(final int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(final long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) size++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param percentile value from 0 to 100
+     * @return latency that the given percentage of the recorded samples does not exceed, or {@code 0} if there are no samples
+     */
+    public long percentile(final double percentile) {
+        final long[] sorted;
+        synchronized (this) {
+            if (size == 0) return 0;
+            sorted = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(sorted);
+        final var index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,127 @@
+package org.serverless.oqu.kerek.http;
+
+import org.serverless.template.Metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+
+import static java.lang.String.format;
+import static org.serverless.template.Metrics.ORIGIN_FETCH_TIME;
+import static org.serverless.template.Metrics.ORIGIN_RETRIES;
+
+/**
+ * Client for the origin web-site (kazneb.kz). It keeps one pool of keep-alive connections, using HTTP/2
+ * where the origin supports it, so it is meant to be created once per execution environment and shared
+ * across warm invocations.
+ */
+public class OriginClient {
+
+    private static final int MAX_RETRIES = 1;
+
+    private final HttpClient httpClient;
+    private final Duration readTimeout;
+    private final OriginRateLimiter rateLimiter;
+    private final OriginMetrics metrics = new OriginMetrics();
+
+    public OriginClient(final Duration connectTimeout, final Duration readTimeout) {
+        this(connectTimeout, readTimeout, OriginRateLimiter.unlimited());
+    }
+
+    public OriginClient(final Duration connectTimeout, final Duration readTimeout, final OriginRateLimiter rateLimiter) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.readTimeout = readTimeout;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Opens the response of a GET request. The caller must close the response to release the connection.
+     * Meant for already compressed content like images, so no compression is requested.
+     */
+    public OriginResponse get(final String url) throws IOException {
+        return get(url, false);
+    }
+
+    /**
+     * Opens the response of a GET request for an HTML page, requesting a compressed body.
+     * The caller must close the response to release the connection.
+     */
+    public OriginResponse getPage(final String url) throws IOException {
+        return get(url, true);
+    }
+
+    public OriginMetrics metrics() {
+        return metrics;
+    }
+
+    private OriginResponse get(final String url, final boolean compressed) throws IOException {
+        final var request = buildRequest(url, compressed);
+        final var hostMetrics = metrics.host(request.uri().getHost());
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return rateLimiter.execute(() -> send(request, hostMetrics));
+            } catch (IOException e) {
+                if (attempt == MAX_RETRIES || !isRetriable(e)) throw e;
+                hostMetrics.retries.increment();
+                Metrics.metrics().count(ORIGIN_RETRIES, 1);
+            }
+        }
+    }
+
+    private HttpRequest buildRequest(final String url, final boolean compressed) {
+        final var builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(readTimeout)
+                .GET();
+        if (compressed) builder.header("Accept-Encoding", "gzip, deflate");
+        return builder.build();
+    }
+
+    private OriginResponse send(final HttpRequest request, final OriginMetrics.HostMetrics hostMetrics) throws IOException {
+        hostMetrics.requests.increment();
+        final var start = System.currentTimeMillis();
+        final HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            hostMetrics.failures.increment();
+            throw new IOException(format("Interrupted while requesting %s", request.uri()), e);
+        } catch (IOException e) {
+            hostMetrics.failures.increment();
+            throw e;
+        } finally {
+            final var elapsed = System.currentTimeMillis() - start;
+            hostMetrics.latencyMillis.add(elapsed);
+            Metrics.metrics().time(ORIGIN_FETCH_TIME, elapsed);
+        }
+
+        hostMetrics.openResponses.incrementAndGet();
+        if (response.version() == HttpClient.Version.HTTP_2) hostMetrics.http2Responses.increment();
+        final var content = new ReadTimeoutInputStream(response.body(), readTimeout, request.uri().toString());
+        final var originResponse = new OriginResponse(response, content, hostMetrics.openResponses::decrementAndGet);
+        if (!originResponse.isSuccessful()) {
+            hostMetrics.failures.increment();
+            originResponse.close();
+            throw new OriginException(request.uri().toString(), response.statusCode());
+        }
+        return originResponse;
+    }
+
+    /**
+     * Only failures of the connection are retried: the origin responding with an error or too slowly,
+     * and the open circuit are left to the rate limiter.
+     */
+    private static boolean isRetriable(final IOException e) {
+        return !(e instanceof OriginException) && !(e instanceof CircuitOpenException) && !(e instanceof HttpTimeoutException)
+                && !Thread.currentThread().isInterrupted();
+    }
+}
@@ -0,0 +1,17 @@
+package org.serverless.oqu.kerek.http;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+import static java.lang.String.format;
+
+@Getter
+public class OriginException extends IOException {
+    private final int statusCode;
+
+    public OriginException(final String url, final int statusCode) {
+        super(format("Origin responded to %s with status %d", url, statusCode));
+        this.statusCode = statusCode;
+    }
+}
@@ -0,0 +1,53 @@
+package org.serverless.oqu.kerek.http;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+
+/**
+ * Per-host counters of the requests made by the {@link OriginClient} since the execution environment started.
+ */
+public class OriginMetrics {
+
+    private final Map<String, HostMetrics> hosts = new ConcurrentHashMap<>();
+
+    HostMetrics host(final String host) {
+        return hosts.computeIfAbsent(host, ignored -> new HostMetrics());
+    }
+
+    /**
+     * @return metrics of every host, e.g. {@code kazneb.kz: requests=10, failures=0, retries=0, open=1, http2=10, avgLatencyMs=120}
+     */
+    public Map<String, String> snapshot() {
+        final var snapshot = new TreeMap<String, String>();
+        hosts.forEach((host, metrics) -> snapshot.put(host, metrics.toString()));
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    static class HostMetrics {
+        final LongAdder requests = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder http2Responses = new LongAdder();
+        final LongAdder latencyMillis = new LongAdder();
+        /** Responses whose bodies are still being read, each of them holds a connection or an HTTP/2 stream. */
+        final AtomicInteger openResponses = new AtomicInteger();
+
+        @Override
+        public String toString() {
+            final var count = requests.sum();
+            return format("requests=%d, failures=%d, retries=%d, open=%d, http2=%d, avgLatencyMs=%d",
+                    count, failures.sum(), retries.sum(), openResponses.get(), http2Responses.sum(),
+                    count == 0 ? 0 : latencyMillis.sum() / count);
+        }
+    }
+}
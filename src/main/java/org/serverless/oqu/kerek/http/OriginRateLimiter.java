@@ -0,0 +1,285 @@
+package org.serverless.oqu.kerek.http;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+import static java.lang.String.format;
+
+/**
+ * Token-bucket rate limiter for the requests to the origin with a circuit breaker.
+ * <p>
+ * The bucket is kept in a {@link RateLimiterStore}, so it is shared by all concurrent invocations.
+ * The rate grows additively while the origin responds fast and drops multiplicatively on 429/5xx
+ * responses, timeouts and slow responses (AIMD). After several overloads in a row the circuit opens
+ * and requests fail fast with {@link CircuitOpenException} until it is half-open again: a single probe
+ * request is let through while the others keep failing fast, its success closes the circuit, its
+ * failure opens it once more.
+ */
+@Slf4j
+public class OriginRateLimiter {
+
+    private static final int MAX_UPDATE_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MILLIS = 10;
+    private static final long CONTENDED = -1;
+
+    private final RateLimiterStore store;
+    private final String key;
+    private final RateLimiterSettings settings;
+    private final LongSupplier clock;
+    private final Sleeper sleeper;
+    private final boolean limited;
+
+    private final AtomicInteger successesSinceIncrease = new AtomicInteger();
+    private int leasedTokens;
+    private boolean probeLeased;
+    private volatile long circuitOpenUntil;
+    private volatile int knownFailures;
+
+    public OriginRateLimiter(final RateLimiterStore store, final String key, final RateLimiterSettings settings) {
+        this(store, key, settings, System::currentTimeMillis, Thread::sleep);
+    }
+
+    public OriginRateLimiter(final RateLimiterStore store, final String key, final RateLimiterSettings settings,
+                             final LongSupplier clock, final Sleeper sleeper) {
+        this(store, key, settings, clock, sleeper, true);
+    }
+
+    private OriginRateLimiter(final RateLimiterStore store, final String key, final RateLimiterSettings settings,
+                              final LongSupplier clock, final Sleeper sleeper, final boolean limited) {
+        this.store = store;
+        this.key = key;
+        this.settings = settings;
+        this.clock = clock;
+        this.sleeper = sleeper;
+        this.limited = limited;
+    }
+
+    /**
+     * Limiter that lets every request through, for the code that runs outside of the pipeline.
+     */
+    public static OriginRateLimiter unlimited() {
+        return new OriginRateLimiter(null, "unlimited", null, System::currentTimeMillis, Thread::sleep, false);
+    }
+
+    /**
+     * Waits for a token, performs the call and feeds its outcome back into the limiter.
+     */
+    public <T> T execute(final OriginCall<T> call) throws IOException {
+        if (!limited) return call.call();
+
+        final var probe = acquireToken();
+        final var start = clock.getAsLong();
+        final T result;
+        try {
+            result = call.call();
+        } catch (IOException e) {
+            if (isOverload(e)) onOverload();
+            else if (probe) closeCircuit();
+            throw e;
+        }
+        onSuccess(clock.getAsLong() - start, probe);
+        return result;
+    }
+
+    /**
+     * Blocks until a token is available.
+     *
+     * @throws CircuitOpenException if the circuit is open
+     */
+    public void acquire() throws IOException {
+        acquireToken();
+    }
+
+    /**
+     * Waits outside of the monitor, so the other threads may fail fast on the open circuit meanwhile.
+     *
+     * @return {@code true} if the token is the probe of the half-open circuit
+     */
+    private boolean acquireToken() throws IOException {
+        for (int contended = 0; ; ) {
+            final long waitMillis;
+            synchronized (this) {
+                if (probeLeased) {
+                    probeLeased = false;
+                    return true;
+                }
+                if (clock.getAsLong() < circuitOpenUntil) throw new CircuitOpenException(key, circuitOpenUntil);
+                // The tokens leased before the circuit opened must not bypass the probe
+                if (leasedTokens > 0 && knownFailures < settings.getFailureThreshold()) {
+                    leasedTokens--;
+                    return false;
+                }
+                waitMillis = leaseTokens();
+            }
+
+            if (waitMillis == CONTENDED) {
+                if (++contended == MAX_UPDATE_ATTEMPTS) {
+                    throw new IOException(format("Failed to lease tokens for %s due to contention", key));
+                }
+                sleep(backoff(contended));
+            } else if (waitMillis > 0) {
+                contended = 0;
+                sleep(waitMillis);
+            }
+        }
+    }
+
+    private void onSuccess(final long latencyMillis, final boolean probe) {
+        if (latencyMillis > settings.getLatencyThreshold().toMillis()) {
+            onOverload();
+            return;
+        }
+        if (probe) {
+            closeCircuit();
+        } else if (knownFailures > 0) {
+            update(state -> state.toBuilder().failures(0).build());
+        }
+        if (successesSinceIncrease.incrementAndGet() >= settings.getIncreaseEvery()) {
+            successesSinceIncrease.set(0);
+            update(state -> state.toBuilder()
+                    .rate(Math.min(settings.getMaxRate(), state.getRate() + settings.getAdditiveIncrease()))
+                    .build()
+            );
+        }
+    }
+
+    /**
+     * The probe has got a response that is not an overload, so the origin is back.
+     */
+    private void closeCircuit() {
+        update(state -> state.toBuilder().failures(0).circuitOpenUntil(0).build());
+    }
+
+    private void onOverload() {
+        successesSinceIncrease.set(0);
+        final var now = clock.getAsLong();
+        final var updated = update(state -> {
+            final var failures = state.getFailures() + 1;
+            final var openUntil = failures >= settings.getFailureThreshold()
+                    ? now + settings.getOpenDuration().toMillis()
+                    : state.getCircuitOpenUntil();
+            return state.toBuilder()
+                    .rate(Math.max(settings.getMinRate(), state.getRate() * settings.getMultiplicativeDecrease()))
+                    .failures(failures)
+                    .circuitOpenUntil(openUntil)
+                    .build();
+        });
+        if (updated != null && updated.getCircuitOpenUntil() > now) {
+            log.warn("Circuit for {} is open after {} failures in a row", key, updated.getFailures());
+        }
+    }
+
+    /**
+     * Takes tokens from the shared bucket. Once the circuit is half-open a single token is taken as the probe,
+     * and the circuit is kept open for everyone else until the probe reports back. A probe slower than the latency
+     * threshold is an overload anyway, so after the threshold the next probe is let through.
+     *
+     * @return milliseconds to wait before the next token is available, {@code 0} to retry at once,
+     * or {@link #CONTENDED} if the bucket has been changed concurrently
+     */
+    private long leaseTokens() {
+        final var state = refill(currentState(), clock.getAsLong());
+        remember(state);
+        if (state.getRefilledAt() < state.getCircuitOpenUntil()) return 0;
+
+        final var halfOpen = state.getFailures() >= settings.getFailureThreshold();
+        final var available = (int) Math.min(Math.floor(state.getTokens()), halfOpen ? 1 : settings.getLeaseSize());
+        if (available < 1) {
+            return Math.max(1, (long) Math.ceil((1 - state.getTokens()) * 1000 / state.getRate()));
+        }
+
+        final var leased = state.toBuilder()
+                .version(state.getVersion() + 1)
+                .tokens(state.getTokens() - available)
+                .circuitOpenUntil(halfOpen ? state.getRefilledAt() + settings.getLatencyThreshold().toMillis() : state.getCircuitOpenUntil())
+                .build();
+        if (!store.save(key, leased, state.getVersion())) return CONTENDED;
+
+        if (halfOpen) {
+            remember(leased);
+            probeLeased = true;
+        } else {
+            leasedTokens += available;
+        }
+        return 0;
+    }
+
+    private RateLimiterState update(final UnaryOperator<RateLimiterState> change) {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            final var state = refill(currentState(), clock.getAsLong());
+            final var updated = change.apply(state).toBuilder()
+                    .version(state.getVersion() + 1)
+                    .build();
+            if (store.save(key, updated, state.getVersion())) {
+                remember(updated);
+                return updated;
+            }
+        }
+        log.warn("Failed to update rate limiter state for {} due to contention", key);
+        return null;
+    }
+
+    private void sleep(final long millis) throws IOException {
+        try {
+            sleeper.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(format("Interrupted while waiting for a token for %s", key), e);
+        }
+    }
+
+    private static long backoff(final int attempt) {
+        final var backoff = BASE_BACKOFF_MILLIS << (attempt - 1);
+        return backoff + ThreadLocalRandom.current().nextLong(backoff);
+    }
+
+    private RateLimiterState currentState() {
+        return store.load(key).orElseGet(() -> RateLimiterState.builder()
+                .version(0)
+                .tokens(settings.getBurst())
+                .refilledAt(clock.getAsLong())
+                .rate(settings.getInitialRate())
+                .build()
+        );
+    }
+
+    private RateLimiterState refill(final RateLimiterState state, final long now) {
+        final var elapsed = Math.max(0, now - state.getRefilledAt());
+        return state.toBuilder()
+                .tokens(Math.min(settings.getBurst(), state.getTokens() + elapsed * state.getRate() / 1000))
+                .refilledAt(Math.max(now, state.getRefilledAt()))
+                .build();
+    }
+
+    private void remember(final RateLimiterState state) {
+        circuitOpenUntil = state.getCircuitOpenUntil();
+        knownFailures = state.getFailures();
+    }
+
+    private static boolean isOverload(final IOException e) {
+        if (e instanceof OriginException) return isOverload(((OriginException) e).getStatusCode());
+        return e instanceof SocketTimeoutException || e instanceof HttpTimeoutException || e instanceof ConnectException;
+    }
+
+    private static boolean isOverload(final int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
+    }
+
+    @FunctionalInterface
+    public interface OriginCall<T> {
+        T call() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+}
@@ -0,0 +1,109 @@
+package org.serverless.oqu.kerek.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+public class OriginResponse implements AutoCloseable {
+
+    private final HttpResponse<InputStream> response;
+    private final InputStream content;
+    private final Runnable onClose;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private InputStream body;
+
+    public OriginResponse(final HttpResponse<InputStream> response) {
+        this(response, response.body(), () -> {
+        });
+    }
+
+    /**
+     * @param content raw body of the response, read in place of the body of the response, e.g. guarded by a timeout
+     */
+    OriginResponse(final HttpResponse<InputStream> response, final InputStream content, final Runnable onClose) {
+        this.response = response;
+        this.content = content;
+        this.onClose = onClose;
+    }
+
+    public int statusCode() {
+        return response.statusCode();
+    }
+
+    public boolean isSuccessful() {
+        return statusCode() >= 200 && statusCode() < 300;
+    }
+
+    public boolean isHttp2() {
+        return response.version() == HttpClient.Version.HTTP_2;
+    }
+
+    /**
+     * Length of the body, unknown if the body is compressed.
+     */
+    public OptionalLong contentLength() {
+        if (contentEncoding().isPresent()) return OptionalLong.empty();
+        return response.headers().firstValueAsLong("Content-Length");
+    }
+
+    public Optional<String> contentType() {
+        return response.headers().firstValue("Content-Type");
+    }
+
+    public Optional<String> contentEncoding() {
+        return response.headers().firstValue("Content-Encoding")
+                .map(String::trim)
+                .filter(encoding -> !encoding.isEmpty() && !"identity".equalsIgnoreCase(encoding));
+    }
+
+    public Optional<Charset> charset() {
+        return contentType().flatMap(contentType -> {
+            for (final var parameter : contentType.split(";")) {
+                final var pair = parameter.trim().split("=", 2);
+                if (pair.length == 2 && "charset".equalsIgnoreCase(pair[0].trim())) {
+                    try {
+                        return Optional.of(Charset.forName(pair[1].trim().replace("\"", "")));
+                    } catch (IllegalArgumentException e) {
+                        return Optional.empty();
+                    }
+                }
+            }
+            return Optional.empty();
+        });
+    }
+
+    /**
+     * Body of the response, decompressed according to its content encoding.
+     */
+    public synchronized InputStream body() throws IOException {
+        if (body != null) return body;
+        final var encoding = contentEncoding().orElse("identity");
+        if ("gzip".equalsIgnoreCase(encoding)) {
+            body = new GZIPInputStream(content, 8192);
+        } else if ("deflate".equalsIgnoreCase(encoding)) {
+            body = new InflaterInputStream(content);
+        } else if ("identity".equals(encoding)) {
+            body = content;
+        } else {
+            throw new IOException("Unsupported content encoding " + encoding);
+        }
+        return body;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) return;
+        try {
+            content.close();
+        } finally {
+            onClose.run();
+        }
+    }
+}
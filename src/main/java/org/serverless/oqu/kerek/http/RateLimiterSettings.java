@@ -0,0 +1,40 @@
+package org.serverless.oqu.kerek.http;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+@Value
+@Builder
+public class RateLimiterSettings {
+    /** Requests per second the limiter starts with. */
+    @Builder.Default
+    double initialRate = 10;
+    @Builder.Default
+    double minRate = 1;
+    @Builder.Default
+    double maxRate = 50;
+    /** Capacity of the bucket, i.e. the largest allowed burst of requests. */
+    @Builder.Default
+    int burst = 20;
+    /** Tokens taken from the shared bucket at once to save round trips to the store. */
+    @Builder.Default
+    int leaseSize = 2;
+    /** Rate added after every {@code increaseEvery} successful requests. */
+    @Builder.Default
+    double additiveIncrease = 1;
+    @Builder.Default
+    int increaseEvery = 10;
+    /** Factor the rate is multiplied by when the origin is overloaded. */
+    @Builder.Default
+    double multiplicativeDecrease = 0.5;
+    /** Requests slower than this are treated as a sign of the overloaded origin. */
+    @Builder.Default
+    Duration latencyThreshold = Duration.ofSeconds(5);
+    /** Consecutive failures after which the circuit opens. */
+    @Builder.Default
+    int failureThreshold = 5;
+    @Builder.Default
+    Duration openDuration = Duration.ofSeconds(30);
+}
@@ -0,0 +1,19 @@
+package org.serverless.oqu.kerek.http;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Shared state of the origin rate limiter. Every change increments the version,
+ * which is used for optimistic locking by the {@link RateLimiterStore}.
+ */
+@Value
+@Builder(toBuilder = true)
+public class RateLimiterState {
+    long version;
+    double tokens;
+    long refilledAt;
+    double rate;
+    int failures;
+    long circuitOpenUntil;
+}
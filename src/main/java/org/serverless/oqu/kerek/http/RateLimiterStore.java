@@ -0,0 +1,16 @@
+package org.serverless.oqu.kerek.http;
+
+import java.util.Optional;
+
+public interface RateLimiterStore {
+
+    Optional<RateLimiterState> load(String key);
+
+    /**
+     * Saves the state only if the stored one still has the expected version
+     * ({@code 0} means that no state has been stored yet).
+     *
+     * @return {@code false} if the state has been changed concurrently
+     */
+    boolean save(String key, RateLimiterState state, long expectedVersion);
+}
@@ -0,0 +1,105 @@
+package org.serverless.oqu.kerek.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Body of a response that fails a read getting no data within the read timeout. The timeout of the request only
+ * bounds the wait for the headers, so without it an origin stalling in the middle of the body holds the reader
+ * until the function times out. On timeout the body is closed, which cancels the exchange, and the read throws
+ * {@link HttpTimeoutException}.
+ */
+class ReadTimeoutInputStream extends FilterInputStream {
+
+    private static final ScheduledThreadPoolExecutor watchdog = createWatchdog();
+
+    private final long timeoutMillis;
+    private final String url;
+    private volatile boolean timedOut;
+
+    ReadTimeoutInputStream(final InputStream in, final Duration timeout, final String url) {
+        super(in);
+        this.timeoutMillis = timeout.toMillis();
+        this.url = url;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final var timeout = schedule();
+        try {
+            final var result = super.read();
+            if (timedOut) throw timeoutException(null);
+            return result;
+        } catch (IOException e) {
+            throw timedOut ? timeoutException(e) : e;
+        } finally {
+            timeout.cancel(false);
+        }
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final var timeout = schedule();
+        try {
+            final var result = super.read(b, off, len);
+            if (timedOut) throw timeoutException(null);
+            return result;
+        } catch (IOException e) {
+            throw timedOut ? timeoutException(e) : e;
+        } finally {
+            timeout.cancel(false);
+        }
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final var timeout = schedule();
+        try {
+            final var result = super.skip(n);
+            if (timedOut) throw timeoutException(null);
+            return result;
+        } catch (IOException e) {
+            throw timedOut ? timeoutException(e) : e;
+        } finally {
+            timeout.cancel(false);
+        }
+    }
+
+    private Future<?> schedule() throws IOException {
+        if (timedOut) throw timeoutException(null);
+        return watchdog.schedule(this::expire, timeoutMillis, MILLISECONDS);
+    }
+
+    private void expire() {
+        timedOut = true;
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // The read fails with the timeout anyway
+        }
+    }
+
+    private HttpTimeoutException timeoutException(final IOException cause) {
+        final var exception = new HttpTimeoutException(format("No data read from %s for %d ms", url, timeoutMillis));
+        if (cause != null) exception.initCause(cause);
+        return exception;
+    }
+
+    private static ScheduledThreadPoolExecutor createWatchdog() {
+        final var executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final var thread = new Thread(runnable, "origin-read-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
@@ -0,0 +1,148 @@
+package org.serverless.oqu.kerek.http;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.OptionalLong;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Hedges slow requests: if a request takes longer than the tracked percentile of the recent latencies,
+ * a second one is sent and the result of whichever finishes first is used, the other one is cancelled.
+ * Hedged requests are limited to the given share of all requests, so they do not overload the origin.
+ */
+@Slf4j
+public class RequestHedger {
+
+    private static final ExecutorService executor = newCachedThreadPool(runnable -> {
+        final var thread = new Thread(runnable, "hedged-request");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LatencyTracker latencies;
+    private final double percentile;
+    private final double maxExtraLoad;
+    private final long minDelayMillis;
+    private final int minSamples;
+    private final boolean enabled;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+
+    /**
+     * @param percentile     percentile of the recent latencies after which a request is hedged, e.g. 95
+     * @param maxExtraLoad   the largest share of requests that may be hedged, e.g. 0.05
+     * @param minDelayMillis requests faster than this are never hedged
+     * @param minSamples     number of latencies to record before hedging starts
+     */
+    public RequestHedger(final double percentile, final double maxExtraLoad, final long minDelayMillis, final int minSamples) {
+        this(new LatencyTracker(1024), percentile, maxExtraLoad, minDelayMillis, minSamples, true);
+    }
+
+    private RequestHedger(final LatencyTracker latencies, final double percentile, final double maxExtraLoad,
+                          final long minDelayMillis, final int minSamples, final boolean enabled) {
+        this.latencies = latencies;
+        this.percentile = percentile;
+        this.maxExtraLoad = maxExtraLoad;
+        this.minDelayMillis = minDelayMillis;
+        this.minSamples = minSamples;
+        this.enabled = enabled;
+    }
+
+    public static RequestHedger disabled() {
+        return new RequestHedger(null, 0, 0, 0, 0, false);
+    }
+
+    /**
+     * Performs the call, hedging it if it is slow. The result of the losing attempt is closed.
+     */
+    public <T extends AutoCloseable> T execute(final OriginRateLimiter.OriginCall<T> call) throws IOException {
+        if (!enabled) return call.call();
+
+        requests.incrementAndGet();
+        final var settled = new AtomicBoolean();
+        final var completion = new ExecutorCompletionService<T>(executor);
+        final var primary = completion.submit(() -> attempt(call, settled));
+        Future<T> hedge = null;
+
+        try {
+            Future<T> done = null;
+            final var delay = hedgeDelay();
+            if (delay.isPresent()) {
+                done = completion.poll(delay.getAsLong(), MILLISECONDS);
+                if (done == null && tryReserveHedge()) {
+                    log.info("Hedging request slower than {} ms", delay.getAsLong());
+                    hedge = completion.submit(() -> attempt(call, settled));
+                }
+            }
+
+            ExecutionException failure = null;
+            for (int remaining = hedge == null ? 1 : 2; remaining > 0; remaining--) {
+                if (done == null) done = completion.take();
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof CancellationException)) failure = e;
+                }
+                done = null;
+            }
+            throw unwrap(failure);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the hedged request", e);
+        } finally {
+            settled.set(true);
+            primary.cancel(true);
+            if (hedge != null) hedge.cancel(true);
+        }
+    }
+
+    public long hedgesCount() {
+        return hedges.get();
+    }
+
+    /**
+     * Performs one attempt. Only the first successful attempt settles the request,
+     * the result of a late one is closed right away.
+     */
+    private <T extends AutoCloseable> T attempt(final OriginRateLimiter.OriginCall<T> call, final AtomicBoolean settled) throws Exception {
+        final var start = System.currentTimeMillis();
+        final var result = call.call();
+        if (!settled.compareAndSet(false, true)) {
+            result.close();
+            throw new CancellationException("Another attempt has already completed");
+        }
+        latencies.record(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private OptionalLong hedgeDelay() {
+        if (latencies.size() < minSamples) return OptionalLong.empty();
+        return OptionalLong.of(Math.max(minDelayMillis, latencies.percentile(percentile)));
+    }
+
+    private boolean tryReserveHedge() {
+        while (true) {
+            final var current = hedges.get();
+            if (current + 1 > maxExtraLoad * requests.get()) return false;
+            if (hedges.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    private static IOException unwrap(final ExecutionException e) {
+        final var cause = e == null ? null : e.getCause();
+        if (cause instanceof IOException) return (IOException) cause;
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        return new IOException("Request failed", cause);
+    }
+}
@@ -15,4 +15,14 @@ public class BookInfo {
     private final String author;
     private final String imageUrl;
     private final String status;
+
+    /**
+     * Placeholder of a book registered before its info is fetched.
+     */
+    public static BookInfo pending(final String bookId) {
+        return BookInfo.builder()
+                .id(bookId)
+                .status("Pending")
+                .build();
+    }
 }
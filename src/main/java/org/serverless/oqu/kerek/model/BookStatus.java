@@ -0,0 +1,17 @@
+package org.serverless.oqu.kerek.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Status and loading progress of a book. The expected number of pages is unknown until the pages are fetched.
+ */
+@Builder
+@Value
+public class BookStatus {
+    String bookId;
+    String status;
+    Long expectedPages;
+    long loadedPages;
+    long version;
+}
@@ -0,0 +1,15 @@
+package org.serverless.oqu.kerek.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Result of submitting one URL of a batch: the book, or the error if the URL is not a valid book URL.
+ */
+@Builder
+@Value
+public class BookSubmissionResult {
+    String url;
+    BookInfo book;
+    String error;
+}
@@ -0,0 +1,16 @@
+package org.serverless.oqu.kerek.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Books last requested by the user, with the cursor of the next page if there are older requests.
+ */
+@Builder
+@Value
+public class UserHistoryPage {
+    List<BookInfo> books;
+    String cursor;
+}
@@ -0,0 +1,65 @@
+package org.serverless.oqu.kerek.pdf;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.utils.PdfMerger;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.file.Files.copy;
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Paths.get;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.serverless.oqu.kerek.pdf.BookPdfRenderer.createPdfWriter;
+
+/**
+ * Merges partial PDF documents stored in S3 into one document. Parts are downloaded one at a time
+ * into a temporary file and their pages are flushed right after being copied, so memory usage
+ * does not depend on the number of parts.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class BookPdfMerger {
+
+    private final S3Client s3Client;
+    private final String bucketName;
+
+    public void merge(final List<String> partKeys, final OutputStream output) throws IOException {
+        final var start = System.currentTimeMillis();
+        try (final var pdfDocument = new PdfDocument(createPdfWriter(output))) {
+            final var merger = new PdfMerger(pdfDocument, false, false);
+            for (final var key : partKeys) {
+                mergePart(pdfDocument, merger, key);
+            }
+            log.info("Merged {} parts into {} pages in {} ms", partKeys.size(), pdfDocument.getNumberOfPages(), System.currentTimeMillis() - start);
+        }
+    }
+
+    private void mergePart(final PdfDocument pdfDocument, final PdfMerger merger, final String key) throws IOException {
+        final var partFile = createTempFile(LAMBDA_TMP_DIR, "part-", ".pdf");
+        try {
+            try (final var stream = s3Client.getObject(GetObjectRequest.builder().bucket(bucketName).key(key).build())) {
+                copy(stream, partFile, REPLACE_EXISTING);
+            }
+            try (final var part = new PdfDocument(new PdfReader(partFile.toFile()))) {
+                final var firstPage = pdfDocument.getNumberOfPages() + 1;
+                merger.merge(part, 1, part.getNumberOfPages());
+                for (int i = firstPage; i <= pdfDocument.getNumberOfPages(); i++) {
+                    pdfDocument.getPage(i).flush(true);
+                }
+            }
+        } finally {
+            deleteIfExists(partFile);
+        }
+    }
+
+    private static final Path LAMBDA_TMP_DIR = get("/tmp");
+}
@@ -0,0 +1,130 @@
+package org.serverless.oqu.kerek.pdf;
+
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.action.PdfAction;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.Image;
+import com.itextpdf.layout.element.Link;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Text;
+import com.itextpdf.layout.properties.TextAlignment;
+import com.itextpdf.layout.properties.UnitValue;
+import com.itextpdf.layout.properties.VerticalAlignment;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.serverless.oqu.kerek.storage.BookPagesPrefetcher;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import static com.itextpdf.io.image.ImageDataFactory.create;
+import static java.util.Objects.requireNonNull;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getPagesPrefetchConcurrency;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getPagesPrefetchMaxBytes;
+import static org.serverless.template.Metrics.PAGES_RENDERED;
+import static org.serverless.template.Metrics.PDF_PAGE_RENDER_TIME;
+import static org.serverless.template.Metrics.S3_GET_BYTES;
+import static org.serverless.template.Metrics.metrics;
+
+/**
+ * Renders book page images stored in S3 into a PDF document, one image per page.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class BookPdfRenderer {
+
+    private static final String PRIMING_PAGE_IMAGE = "/priming/page.png";
+
+    private final S3Client s3Client;
+    private final String bucketName;
+
+    public void render(final List<S3Object> pages, final boolean withLastPage, final OutputStream output) throws IOException {
+        final var start = System.currentTimeMillis();
+        var pageNumber = 0;
+        try (
+                final var prefetcher = new BookPagesPrefetcher(pages, this::readObject, getPagesPrefetchConcurrency(), getPagesPrefetchMaxBytes());
+                final var pdfDocument = new PdfDocument(createPdfWriter(output));
+                final var document = new Document(pdfDocument)
+        ) {
+            while (prefetcher.hasNext()) {
+                final var page = prefetcher.next();
+                final var pageStart = System.currentTimeMillis();
+                final var pageImage = new Image(create(page));
+
+                pdfDocument.addNewPage(new PageSize(pageImage.getImageWidth(), pageImage.getImageHeight()));
+                pageImage.setFixedPosition(++pageNumber, 0, 0);
+                document.add(pageImage);
+                metrics().time(PDF_PAGE_RENDER_TIME, System.currentTimeMillis() - pageStart);
+            }
+            metrics().count(PAGES_RENDERED, pageNumber);
+            if (withLastPage) addLastPage(pdfDocument, document);
+        }
+        final var elapsed = Math.max(1, System.currentTimeMillis() - start);
+        log.info("Rendered {} pages in {} ms ({} pages/sec)", pageNumber, elapsed, pageNumber * 1000 / elapsed);
+    }
+
+    static PdfWriter createPdfWriter(final OutputStream output) {
+        final var writer = new PdfWriter(output);
+        // The output is completed (or aborted) by the caller depending on the rendering result
+        writer.setCloseStream(false);
+        return writer;
+    }
+
+    /**
+     * Renders a bundled page image and the last page into a discarded document, to warm up the PDF engine.
+     */
+    public static void prime() {
+        try (
+                final var image = requireNonNull(BookPdfRenderer.class.getResourceAsStream(PRIMING_PAGE_IMAGE), PRIMING_PAGE_IMAGE);
+                final var pdfDocument = new PdfDocument(createPdfWriter(OutputStream.nullOutputStream()));
+                final var document = new Document(pdfDocument)
+        ) {
+            final var pageImage = new Image(create(image.readAllBytes()));
+            pdfDocument.addNewPage(new PageSize(pageImage.getImageWidth(), pageImage.getImageHeight()));
+            pageImage.setFixedPosition(1, 0, 0);
+            document.add(pageImage);
+            addLastPage(pdfDocument, document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void addLastPage(final PdfDocument pdfDocument, final Document document) {
+        final var lastPageSize = pdfDocument.getLastPage().getPageSize();
+        pdfDocument.addNewPage(new PageSize(lastPageSize.getWidth(), lastPageSize.getHeight()));
+
+        final var paragraph = new Paragraph()
+                .setFixedPosition(pdfDocument.getNumberOfPages(), 0, lastPageSize.getHeight() / 2, UnitValue.createPercentValue(100))
+                .setTextAlignment(TextAlignment.CENTER)
+                .setFontSize(24)
+                .setVerticalAlignment(VerticalAlignment.MIDDLE);
+
+        paragraph.add(new Text("This book downloaded from "))
+                .add(new Link("oqukerek.de", PdfAction.createURI("https://oqukerek.de/")).setBold());
+
+        document.add(paragraph);
+    }
+
+    private byte[] readObject(final String key) throws IOException {
+        final var getRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+
+        try (final var stream = s3Client.getObjectAsBytes(getRequest).asInputStream()) {
+            final var bytes = stream.readAllBytes();
+            metrics().countBytes(S3_GET_BYTES, bytes.length);
+            return bytes;
+        } catch (IOException e) {
+            log.error("Error while trying to read object {} from bucket {}", key, bucketName);
+            throw e;
+        }
+    }
+}
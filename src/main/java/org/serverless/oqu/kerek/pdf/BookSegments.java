@@ -0,0 +1,87 @@
+package org.serverless.oqu.kerek.pdf;
+
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * Naming and messaging conventions of the segmented assembly: every segment is rendered into
+ * its own partial PDF by a separate invocation, and the partial PDFs are merged once all of them exist.
+ * Partial PDFs do not use the {@code .pdf} suffix, so they do not trigger the pages wiper.
+ */
+public final class BookSegments {
+
+    private BookSegments() {
+    }
+
+    public static final String TYPE = "type";
+    public static final String SEGMENT = "segment";
+    public static final String SEGMENTS = "segments";
+    public static final String SEGMENT_SIZE = "segment-size";
+    public static final String MERGE = "merge";
+
+    /**
+     * Number of segments the given number of pages is split into, the last one holding the remainder.
+     */
+    public static int segmentCount(final int pagesCount, final int segmentSize) {
+        return (pagesCount + segmentSize - 1) / segmentSize;
+    }
+
+    /**
+     * Pages of the given segment, which are fewer than the segment size only in the last segment.
+     */
+    public static <T> List<T> segmentPages(final List<T> pages, final int segment, final int segmentSize) {
+        final var from = Math.min(segment * segmentSize, pages.size());
+        return pages.subList(from, Math.min(from + segmentSize, pages.size()));
+    }
+
+    public static String segmentsPrefix(final String bookId) {
+        return format("%s/segments/", bookId);
+    }
+
+    public static String segmentKey(final String bookId, final int segment) {
+        return format("%s%05d.part", segmentsPrefix(bookId), segment);
+    }
+
+    public static SendMessageBatchRequestEntry segmentMessage(final String bookId, final int segment, final int segments, final int segmentSize) {
+        final var id = format("%s-segment-%d", bookId, segment);
+        return SendMessageBatchRequestEntry.builder()
+                .id(format("segment-%d", segment))
+                .messageGroupId(id)
+                .messageDeduplicationId(id)
+                .messageBody(bookId)
+                .messageAttributes(Map.of(
+                        TYPE, stringMessageAttribute(SEGMENT),
+                        SEGMENT, stringMessageAttribute(String.valueOf(segment)),
+                        SEGMENTS, stringMessageAttribute(String.valueOf(segments)),
+                        SEGMENT_SIZE, stringMessageAttribute(String.valueOf(segmentSize))
+                ))
+                .build();
+    }
+
+    public static SendMessageBatchRequestEntry mergeMessage(final String bookId, final int segments) {
+        // The same deduplication ID makes the queue drop merge requests sent by segments finishing at the same time
+        final var id = format("%s-merge", bookId);
+        return SendMessageBatchRequestEntry.builder()
+                .id(MERGE)
+                .messageGroupId(id)
+                .messageDeduplicationId(id)
+                .messageBody(bookId)
+                .messageAttributes(Map.of(
+                        TYPE, stringMessageAttribute(MERGE),
+                        SEGMENTS, stringMessageAttribute(String.valueOf(segments))
+                ))
+                .build();
+    }
+
+    private static MessageAttributeValue stringMessageAttribute(final String value) {
+        return MessageAttributeValue.builder()
+                .dataType(String.class.getSimpleName())
+                .stringValue(value)
+                .build();
+    }
+}
@@ -0,0 +1,65 @@
+package org.serverless.oqu.kerek.pdf;
+
+import lombok.RequiredArgsConstructor;
+import org.serverless.oqu.kerek.queue.SqsBatchSender;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+import static org.serverless.oqu.kerek.pdf.BookSegments.*;
+
+/**
+ * Messaging of the segmented assembly: enqueues a message per segment, and the merge message once the partial PDFs
+ * of all the segments exist. A message SQS does not accept fails the call, so that the triggering event is retried
+ * instead of leaving the book without its PDF.
+ */
+@RequiredArgsConstructor
+public class SegmentedAssembly {
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final SqsBatchSender sqsBatchSender;
+    private final String queueUrl;
+
+    /**
+     * @return the number of segments the pages are split into
+     */
+    public int enqueueSegments(final String bookId, final int pagesCount, final int segmentSize) throws InterruptedException {
+        final var segments = segmentCount(pagesCount, segmentSize);
+        send(bookId, "segment", IntStream.range(0, segments).mapToObj(segment -> segmentMessage(bookId, segment, segments, segmentSize)));
+        return segments;
+    }
+
+    /**
+     * Requests the merge if the partial PDFs of all the segments exist.
+     *
+     * @return {@code true} if the merge has been requested
+     */
+    public boolean requestMergeIfComplete(final String bookId, final int segments) throws InterruptedException {
+        if (segmentKeys(bookId).size() != segments) return false;
+        send(bookId, "merge", Stream.of(mergeMessage(bookId, segments)));
+        return true;
+    }
+
+    public List<String> segmentKeys(final String bookId) {
+        return s3Client.listObjectsV2Paginator(b -> b.bucket(bucketName).prefix(segmentsPrefix(bookId)))
+                .contents()
+                .stream()
+                .map(S3Object::key)
+                .sorted()
+                .collect(toList());
+    }
+
+    private void send(final String bookId, final String type, final Stream<SendMessageBatchRequestEntry> entries) throws InterruptedException {
+        final var result = sqsBatchSender.send(queueUrl, entries);
+        if (result.getFailed() > 0) {
+            throw new IllegalStateException(format("Failed to enqueue %d %s messages of book %s", result.getFailed(), type, bookId));
+        }
+    }
+}
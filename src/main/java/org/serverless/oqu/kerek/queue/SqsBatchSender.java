@@ -0,0 +1,121 @@
+package org.serverless.oqu.kerek.queue;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.delayedExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.partitioningBy;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.serverless.oqu.kerek.util.StreamUtils.chunked;
+import static org.serverless.template.Metrics.BATCH_RETRIES;
+import static org.serverless.template.Metrics.metrics;
+
+/**
+ * Sends messages in batches through the async SQS client, keeping a limited number of batches in flight.
+ * Entries that SQS failed to enqueue are sent again with exponential backoff, unless the failure is caused by the entry itself.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class SqsBatchSender {
+
+    public static final int BATCH_SIZE = 10;
+    private static final long BASE_BACKOFF_MILLIS = 100;
+
+    private final SqsAsyncClient sqsAsyncClient;
+    private final int batchesInFlight;
+    private final int maxAttempts;
+
+    public Result send(final String queueUrl, final Stream<SendMessageBatchRequestEntry> entries) throws InterruptedException {
+        final var permits = new Semaphore(batchesInFlight);
+        final var enqueued = new AtomicInteger();
+        final var failed = new AtomicInteger();
+
+        try (final var batches = chunked(entries, BATCH_SIZE)) {
+            final var iterator = batches.iterator();
+            while (iterator.hasNext()) {
+                final var batch = iterator.next();
+                permits.acquire();
+                sendBatch(queueUrl, batch, 1, enqueued, failed)
+                        .whenComplete((ignored, e) -> {
+                            if (e != null) {
+                                log.error("Failed to send a batch of {} messages to {}", batch.size(), queueUrl, e);
+                                failed.addAndGet(batch.size());
+                            }
+                            permits.release();
+                        });
+            }
+        }
+        permits.acquire(batchesInFlight);
+        return new Result(enqueued.get(), failed.get());
+    }
+
+    private CompletableFuture<Void> sendBatch(final String queueUrl, final List<SendMessageBatchRequestEntry> entries, final int attempt,
+                                              final AtomicInteger enqueued, final AtomicInteger failed) {
+        final var request = SendMessageBatchRequest.builder()
+                .queueUrl(queueUrl)
+                .entries(entries)
+                .build();
+        return completedFuture(request)
+                .thenCompose(sqsAsyncClient::sendMessageBatch)
+                .handle((response, e) -> {
+                    if (e != null) {
+                        log.warn("Attempt {} to send a batch of {} messages failed: {}", attempt, entries.size(), e.getMessage());
+                        return retry(queueUrl, entries, attempt, enqueued, failed);
+                    }
+                    enqueued.addAndGet(response.successful().size());
+
+                    final var rejected = response.failed().stream()
+                            .collect(partitioningBy(entry -> Boolean.TRUE.equals(entry.senderFault())));
+                    rejected.get(true).forEach(entry -> log.error("Message {} has been rejected: {} {}", entry.id(), entry.code(), entry.message()));
+                    failed.addAndGet(rejected.get(true).size());
+                    if (rejected.get(false).isEmpty()) return completedFuture((Void) null);
+
+                    final Set<String> retriable = rejected.get(false).stream()
+                            .map(BatchResultErrorEntry::id)
+                            .collect(toSet());
+                    final var retried = entries.stream()
+                            .filter(entry -> retriable.contains(entry.id()))
+                            .collect(toList());
+                    return retry(queueUrl, retried, attempt, enqueued, failed);
+                })
+                .thenCompose(identity());
+    }
+
+    private CompletableFuture<Void> retry(final String queueUrl, final List<SendMessageBatchRequestEntry> entries, final int attempt,
+                                          final AtomicInteger enqueued, final AtomicInteger failed) {
+        if (attempt >= maxAttempts) {
+            log.error("Giving up on {} messages after {} attempts", entries.size(), attempt);
+            failed.addAndGet(entries.size());
+            return completedFuture(null);
+        }
+        metrics().count(BATCH_RETRIES, 1);
+        final var backoff = BASE_BACKOFF_MILLIS << (attempt - 1);
+        final var delay = backoff + ThreadLocalRandom.current().nextLong(backoff);
+        return CompletableFuture.runAsync(() -> {
+                }, delayedExecutor(delay, MILLISECONDS))
+                .thenCompose(ignored -> sendBatch(queueUrl, entries, attempt + 1, enqueued, failed));
+    }
+
+    @Value
+    public static class Result {
+        int enqueued;
+        int failed;
+    }
+}
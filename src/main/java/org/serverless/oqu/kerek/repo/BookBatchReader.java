@@ -0,0 +1,147 @@
+package org.serverless.oqu.kerek.repo;
+
+import lombok.RequiredArgsConstructor;
+import org.serverless.oqu.kerek.model.BookInfo;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static java.lang.String.format;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonMap;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static org.serverless.oqu.kerek.repo.BookMapper.BOOK_ID;
+import static org.serverless.oqu.kerek.repo.BookMapper.USER_EMAIL;
+import static org.serverless.oqu.kerek.util.DynamoDbUtils.stringAttribute;
+import static org.serverless.template.Metrics.BATCH_RETRIES;
+import static org.serverless.template.Metrics.metrics;
+
+/**
+ * Reads books by any number of IDs. The IDs are split into requests of at most 100 keys, which are sent
+ * concurrently, and the keys DynamoDB has left unprocessed are requested again with jittered backoff.
+ * Only the attributes of the book are read, and the books are returned in the order of the given IDs.
+ */
+@RequiredArgsConstructor
+public class BookBatchReader {
+
+    public static final int MAX_BATCH_GET_SIZE = 100;
+    private static final long BASE_BACKOFF_MILLIS = 50;
+
+    private static final ExecutorService executor = newCachedThreadPool(runnable -> {
+        final var thread = new Thread(runnable, "batch-get-item");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final DynamoDbClient dynamoDbClient;
+    private final BookMapper mapper;
+    private final int parallelism;
+    private final int maxAttempts;
+
+    public List<BookInfo> read(final String tableName, final List<String> bookIds) {
+        final var uniqueBookIds = new ArrayList<>(new LinkedHashSet<>(bookIds));
+        if (uniqueBookIds.isEmpty()) return emptyList();
+
+        final var batches = IntStream.range(0, (uniqueBookIds.size() + MAX_BATCH_GET_SIZE - 1) / MAX_BATCH_GET_SIZE)
+                .mapToObj(i -> uniqueBookIds.subList(i * MAX_BATCH_GET_SIZE, Math.min((i + 1) * MAX_BATCH_GET_SIZE, uniqueBookIds.size())))
+                .collect(toList());
+        final var books = new HashMap<String, BookInfo>(uniqueBookIds.size() * 2);
+        if (batches.size() == 1 || parallelism <= 1) {
+            batches.forEach(batch -> read(tableName, batch).forEach(book -> books.put(book.getId(), book)));
+        } else {
+            readConcurrently(tableName, batches).forEach(book -> books.put(book.getId(), book));
+        }
+
+        return uniqueBookIds.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .collect(toList());
+    }
+
+    /**
+     * Sends at most {@code parallelism} requests at a time, each task reading its share of the batches.
+     */
+    private List<BookInfo> readConcurrently(final String tableName, final List<List<String>> batches) {
+        final var tasks = Math.min(parallelism, batches.size());
+        final var futures = new ArrayList<Future<List<BookInfo>>>(tasks);
+        for (int task = 0; task < tasks; task++) {
+            final var first = task;
+            futures.add(executor.submit(() -> {
+                final var books = new ArrayList<BookInfo>();
+                for (int i = first; i < batches.size(); i += tasks) {
+                    books.addAll(read(tableName, batches.get(i)));
+                }
+                return books;
+            }));
+        }
+
+        final var books = new ArrayList<BookInfo>();
+        try {
+            for (final var future : futures) {
+                books.addAll(future.get());
+            }
+            return books;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading books", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Failed to read books", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private List<BookInfo> read(final String tableName, final List<String> bookIds) {
+        final var attributes = mapper.bookAttributes();
+        final var attributeNames = IntStream.range(0, attributes.size())
+                .boxed()
+                .collect(toMap(i -> "#a" + i, attributes::get));
+        var keysAndAttributes = KeysAndAttributes.builder()
+                .keys(bookIds.stream()
+                        .map(id -> Map.of(BOOK_ID, stringAttribute(id), USER_EMAIL, stringAttribute(id)))
+                        .collect(toList()))
+                .projectionExpression(String.join(", ", attributeNames.keySet()))
+                .expressionAttributeNames(attributeNames)
+                .build();
+
+        final var books = new ArrayList<BookInfo>(bookIds.size());
+        for (int attempt = 1; ; attempt++) {
+            final var requestItems = singletonMap(tableName, keysAndAttributes);
+            final var response = dynamoDbClient.batchGetItem(br -> br.requestItems(requestItems));
+            response.responses().getOrDefault(tableName, emptyList()).forEach(item -> books.add(mapper.mapToBook(item)));
+
+            final var unprocessed = response.unprocessedKeys().get(tableName);
+            if (unprocessed == null || unprocessed.keys().isEmpty()) return books;
+            if (attempt >= maxAttempts) {
+                throw new IllegalStateException(format("Failed to read %d books after %d attempts", unprocessed.keys().size(), attempt));
+            }
+            metrics().count(BATCH_RETRIES, 1);
+            backOff(attempt);
+            keysAndAttributes = unprocessed;
+        }
+    }
+
+    private static void backOff(final int attempt) {
+        final var backoff = BASE_BACKOFF_MILLIS << (attempt - 1);
+        try {
+            Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading books", e);
+        }
+    }
+}
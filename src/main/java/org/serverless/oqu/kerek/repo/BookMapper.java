@@ -3,16 +3,12 @@ package org.serverless.oqu.kerek.repo;
 import org.serverless.oqu.kerek.model.BookInfo;
 import org.serverless.oqu.kerek.model.BookRequestContext;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.utils.ImmutableMap;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.function.BiConsumer;
-import java.util.function.Function;
 
 import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
-import static java.util.Objects.nonNull;
-import static java.util.stream.Collectors.toMap;
 import static software.amazon.awssdk.utils.StringUtils.isNotBlank;
 
 public class BookMapper {
@@ -24,65 +20,90 @@ public class BookMapper {
     public static final String IMAGE_URL = "ImageUrl";
     public static final String REQUESTED_AT = "RequestedAt";
     public static final String STATUS = "Status";
+    public static final String EXPECTED_PAGES = "ExpectedPages";
+    public static final String LOADED_PAGES = "LoadedPages";
+    public static final String ASSEMBLY_TRIGGERED_AT = "AssemblyTriggeredAt";
+    /**
+     * Number of the attempt to load the pages of the book, which scopes the markers of the loaded pages.
+     */
+    public static final String LOADING_ATTEMPT = "LoadingAttempt";
+    public static final String EXPIRES_AT = "ExpiresAt";
+    /**
+     * When the book was last enqueued for loading, which tells a pending book stuck in the pipeline.
+     * The book item does not use {@link #REQUESTED_AT}, which would put it into the index of the requests.
+     */
+    public static final String ENQUEUED_AT = "EnqueuedAt";
+    /**
+     * Incremented on every change of the status or the loading progress of the book.
+     */
+    public static final String VERSION = "Version";
 
+    /**
+     * The book item is keyed by the ID of the book as both the partition and the sort key.
+     */
     public Map<String, AttributeValue> mapToBookItem(final BookInfo bookInfo) {
-        return bookGetters.entrySet()
-                .stream()
-                .filter(e -> isNotBlank(e.getValue().apply(bookInfo)))
-                .collect(
-                        toMap(
-                                Map.Entry::getKey,
-                                e -> stringAttribute(e.getValue().apply(bookInfo))
-                        )
-                );
+        final var item = new HashMap<String, AttributeValue>(8);
+        if (isNotBlank(bookInfo.getId())) {
+            final var id = stringAttribute(bookInfo.getId());
+            item.put(BOOK_ID, id);
+            item.put(USER_EMAIL, id);
+        }
+        putIfNotBlank(item, TITLE, bookInfo.getTitle());
+        putIfNotBlank(item, AUTHOR, bookInfo.getAuthor());
+        putIfNotBlank(item, IMAGE_URL, bookInfo.getImageUrl());
+        item.put(STATUS, statusAttribute(isNotBlank(bookInfo.getStatus()) ? bookInfo.getStatus() : DEFAULT_STATUS));
+        return item;
     }
 
     public BookInfo mapToBook(final Map<String, AttributeValue> item) {
-        final var builder = BookInfo.builder();
-        bookSetters.entrySet()
-                .stream()
-                .filter(e -> item.containsKey(e.getKey()))
-                .filter(e -> nonNull(item.get(e.getKey())))
-                .forEach(e -> e.getValue().accept(builder, item.get(e.getKey()).s()));
-        return builder.build();
+        return BookInfo.builder()
+                .id(stringValue(item, BOOK_ID))
+                .title(stringValue(item, TITLE))
+                .author(stringValue(item, AUTHOR))
+                .imageUrl(stringValue(item, IMAGE_URL))
+                .status(stringValue(item, STATUS))
+                .build();
+    }
+
+    /**
+     * Attributes read by {@link #mapToBook(Map)}.
+     */
+    public List<String> bookAttributes() {
+        return BOOK_ATTRIBUTES;
     }
 
     public Map<String, AttributeValue> mapToUserItem(BookRequestContext request) {
-        return userGetters.entrySet()
-                .stream()
-                .filter(e -> isNotBlank(e.getValue().apply(request)))
-                .collect(
-                        toMap(
-                                Map.Entry::getKey,
-                                e -> stringAttribute(e.getValue().apply(request))
-                        )
-                );
+        final var item = new HashMap<String, AttributeValue>(4);
+        putIfNotBlank(item, BOOK_ID, request.getBookId());
+        putIfNotBlank(item, USER_EMAIL, request.getUserEmail());
+        item.put(REQUESTED_AT, stringAttribute(request.getRequestedAt().format(ISO_OFFSET_DATE_TIME)));
+        return item;
     }
 
-    private AttributeValue stringAttribute(String value) {
-        return AttributeValue.builder().s(value).build();
+    private static void putIfNotBlank(final Map<String, AttributeValue> item, final String attribute, final String value) {
+        if (isNotBlank(value)) item.put(attribute, stringAttribute(value));
     }
 
-    private final Map<String, Function<BookInfo, String>> bookGetters = Map.of(
-            BOOK_ID, BookInfo::getId,
-            USER_EMAIL, BookInfo::getId,
-            TITLE, BookInfo::getTitle,
-            AUTHOR, BookInfo::getAuthor,
-            IMAGE_URL, BookInfo::getImageUrl,
-            STATUS, book -> Optional.ofNullable(book.getStatus()).orElse("InProgress")
-    );
+    private static String stringValue(final Map<String, AttributeValue> item, final String attribute) {
+        final var value = item.get(attribute);
+        return value == null ? null : value.s();
+    }
 
-    private final Map<String, BiConsumer<BookInfo.BookInfoBuilder, String>> bookSetters = ImmutableMap.of(
-            BOOK_ID, BookInfo.BookInfoBuilder::id,
-            TITLE, BookInfo.BookInfoBuilder::title,
-            AUTHOR, BookInfo.BookInfoBuilder::author,
-            IMAGE_URL, BookInfo.BookInfoBuilder::imageUrl,
-            STATUS, BookInfo.BookInfoBuilder::status
-    );
+    private static AttributeValue statusAttribute(final String status) {
+        final var cached = STATUS_ATTRIBUTES.get(status);
+        return cached != null ? cached : stringAttribute(status);
+    }
+
+    private static AttributeValue stringAttribute(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
 
-    private final Map<String, Function<BookRequestContext, String>> userGetters = ImmutableMap.of(
-            BOOK_ID, BookRequestContext::getBookId,
-            USER_EMAIL, BookRequestContext::getUserEmail,
-            REQUESTED_AT, request -> request.getRequestedAt().format(ISO_OFFSET_DATE_TIME)
+    private static final String DEFAULT_STATUS = "InProgress";
+    private static final List<String> BOOK_ATTRIBUTES = List.of(BOOK_ID, TITLE, AUTHOR, IMAGE_URL, STATUS);
+    // Attribute values are immutable, so the values of the known statuses are shared by all items
+    private static final Map<String, AttributeValue> STATUS_ATTRIBUTES = Map.of(
+            "Pending", stringAttribute("Pending"),
+            DEFAULT_STATUS, stringAttribute(DEFAULT_STATUS),
+            "Ready", stringAttribute("Ready")
     );
 }
@@ -1,47 +1,166 @@
 package org.serverless.oqu.kerek.repo;
 
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import org.serverless.oqu.kerek.model.BookInfo;
 import org.serverless.oqu.kerek.model.BookRequestContext;
+import org.serverless.oqu.kerek.model.BookStatus;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 
-import static java.util.Comparator.comparing;
-import static java.util.Comparator.comparingInt;
-import static java.util.stream.Collectors.toList;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+import static java.util.Collections.singletonMap;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 import static org.serverless.oqu.kerek.repo.BookMapper.*;
 import static org.serverless.oqu.kerek.util.DynamoDbUtils.*;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getBatchGetMaxAttempts;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getBatchGetParallelism;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getBatchRegisterParallelism;
 import static org.serverless.oqu.kerek.util.EnvironmentUtils.getTableIndexName;
 import static org.serverless.oqu.kerek.util.EnvironmentUtils.getTableName;
+import static org.serverless.oqu.kerek.util.StreamUtils.chunked;
+import static org.serverless.template.Metrics.BATCH_RETRIES;
+import static org.serverless.template.Metrics.metrics;
 
 @RequiredArgsConstructor
 public class BookRepository {
+
+    private static final ExecutorService executor = newCachedThreadPool(runnable -> {
+        final var thread = new Thread(runnable, "register-book");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final DynamoDbClient dynamoDbClient;
     private final BookMapper mapper;
+    private final BookBatchReader batchReader;
+    private final int registerParallelism;
+
+    public BookRepository(final DynamoDbClient dynamoDbClient, final BookMapper mapper) {
+        this(dynamoDbClient, mapper, new BookBatchReader(dynamoDbClient, mapper, getBatchGetParallelism(), getBatchGetMaxAttempts()),
+                getBatchRegisterParallelism());
+    }
 
-    public void saveNewBook(BookInfo book, BookRequestContext context) {
-        final var putBookRequest = WriteRequest.builder()
-                .putRequest(pr -> pr.item(mapper.mapToBookItem(book)))
-                .build();
-        final var putUserRequest = WriteRequest.builder()
-                .putRequest(pr -> pr.item(mapper.mapToUserItem(context)))
-                .build();
-        final var requestItems = Map.of(getTableName(), List.of(putBookRequest, putUserRequest));
+    /**
+     * Saves the book unless it has already been saved by a concurrent request, and records the request in any case.
+     *
+     * @return {@code true} if the book has been saved by this call, so the caller has to start loading its pages
+     */
+    public boolean registerNewBook(final BookInfo book, final BookRequestContext context) {
+        final var registered = registerBook(book);
+        saveNewRequest(context);
+        return registered;
+    }
 
-        dynamoDbClient.batchWriteItem(br -> br.requestItems(requestItems));
+    /**
+     * Saves the book unless it has already been saved.
+     *
+     * @return {@code true} if the book has been saved by this call, so the caller has to start loading its pages
+     */
+    public boolean registerBook(final BookInfo book) {
+        final var item = mapper.mapToBookItem(book);
+        item.put(VERSION, numberAttribute(1));
+        item.put(ENQUEUED_AT, stringAttribute(timestamp(Instant.now())));
+        try {
+            dynamoDbClient.putItem(
+                    br -> br.tableName(getTableName())
+                            .item(item)
+                            .conditionExpression("attribute_not_exists(#bookId)")
+                            .expressionAttributeNames(Map.of("#bookId", BOOK_ID))
+            );
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Saves the books that have not been saved yet, like {@link #registerBook(BookInfo)} does for one book.
+     * Conditional writes cannot be batched, so at most {@code registerParallelism} of them are sent at a time,
+     * each task writing its share of the books.
+     *
+     * @return IDs of the books saved by this call, so the caller has to start loading their pages
+     */
+    public Set<String> registerBooks(final List<BookInfo> books) {
+        if (books.size() <= 1 || registerParallelism <= 1) {
+            return books.stream()
+                    .filter(this::registerBook)
+                    .map(BookInfo::getId)
+                    .collect(toSet());
+        }
+
+        final var tasks = Math.min(registerParallelism, books.size());
+        final var futures = new ArrayList<Future<List<String>>>(tasks);
+        for (int task = 0; task < tasks; task++) {
+            final var first = task;
+            futures.add(executor.submit(() -> {
+                final var registered = new ArrayList<String>();
+                for (int i = first; i < books.size(); i += tasks) {
+                    if (registerBook(books.get(i))) registered.add(books.get(i).getId());
+                }
+                return registered;
+            }));
+        }
+
+        final var registered = new HashSet<String>();
+        try {
+            for (final var future : futures) {
+                registered.addAll(future.get());
+            }
+            return registered;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while registering books", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Failed to register books", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
     }
 
     public void saveNewRequest(BookRequestContext context) {
         dynamoDbClient.putItem(br -> br.tableName(getTableName()).item(mapper.mapToUserItem(context)));
     }
 
+    /**
+     * Saves the requests in batches, writing again the items DynamoDB has left unprocessed.
+     */
+    public void saveNewRequests(final List<BookRequestContext> contexts) {
+        final var writeRequests = contexts.stream()
+                .map(context -> WriteRequest.builder()
+                        .putRequest(pr -> pr.item(mapper.mapToUserItem(context)))
+                        .build());
+        try (final var batches = chunked(writeRequests, MAX_BATCH_WRITE_SIZE)) {
+            batches.forEach(this::batchWrite);
+        }
+    }
+
     public void updateBookStatus(final String bookId, final String status) {
         final var primaryKey = primaryKey(BOOK_ID, USER_EMAIL, bookId);
-        final var updatedValues = Map.of(STATUS, updateAttribute(status));
+        final var updatedValues = Map.of(STATUS, updateAttribute(status), VERSION, incrementAttribute());
 
         dynamoDbClient.updateItem(
                 br -> br.tableName(getTableName())
@@ -50,6 +169,208 @@ public class BookRepository {
         );
     }
 
+    /**
+     * Claims enqueueing again a book pending for longer than the given time, e.g. because the message fetching
+     * its info has ended up in the dead-letter queue. Only one of concurrent callers gets {@code true}.
+     */
+    public boolean claimStalePendingBook(final String bookId, final Duration retryAfter) {
+        final var now = Instant.now();
+        try {
+            dynamoDbClient.updateItem(
+                    br -> br.tableName(getTableName())
+                            .key(primaryKey(BOOK_ID, USER_EMAIL, bookId))
+                            .updateExpression("SET #enqueuedAt = :now")
+                            .conditionExpression("#status = :pending AND (attribute_not_exists(#enqueuedAt) OR #enqueuedAt < :staleBefore)")
+                            .expressionAttributeNames(Map.of("#enqueuedAt", ENQUEUED_AT, "#status", STATUS))
+                            .expressionAttributeValues(Map.of(
+                                    ":now", stringAttribute(timestamp(now)),
+                                    ":pending", stringAttribute("Pending"),
+                                    ":staleBefore", stringAttribute(timestamp(now.minus(retryAfter)))
+                            ))
+            );
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Fills in the info of a book registered without it. The status is taken from the book, {@code InProgress} by default.
+     */
+    public void updateBookInfo(final BookInfo book) {
+        final var updatedValues = mapper.mapToBookItem(book)
+                .entrySet()
+                .stream()
+                .filter(e -> !BOOK_ID.equals(e.getKey()) && !USER_EMAIL.equals(e.getKey()))
+                .collect(toMap(
+                        Map.Entry::getKey,
+                        e -> AttributeValueUpdate.builder().value(e.getValue()).action(AttributeAction.PUT).build()
+                ));
+        updatedValues.put(VERSION, incrementAttribute());
+
+        dynamoDbClient.updateItem(
+                br -> br.tableName(getTableName())
+                        .key(primaryKey(BOOK_ID, USER_EMAIL, book.getId()))
+                        .attributeUpdates(updatedValues)
+        );
+    }
+
+    /**
+     * Sets the number of pages to be loaded for the book. The progress of an unfinished previous attempt is kept,
+     * since its pages are not counted again, while a finished one is followed by a new attempt counting from zero.
+     *
+     * @return the attempt the pages have to be registered with
+     */
+    public long startPagesLoading(final String bookId, final int expectedPages) {
+        UpdateItemResponse response;
+        try {
+            response = dynamoDbClient.updateItem(
+                    br -> br.tableName(getTableName())
+                            .key(primaryKey(BOOK_ID, USER_EMAIL, bookId))
+                            .updateExpression("SET #expected = :expected, #loaded = if_not_exists(#loaded, :zero), "
+                                    + "#attempt = if_not_exists(#attempt, :one) ADD #version :one")
+                            .conditionExpression("attribute_not_exists(#triggeredAt)")
+                            .expressionAttributeNames(Map.of(
+                                    "#expected", EXPECTED_PAGES,
+                                    "#loaded", LOADED_PAGES,
+                                    "#attempt", LOADING_ATTEMPT,
+                                    "#triggeredAt", ASSEMBLY_TRIGGERED_AT,
+                                    "#version", VERSION
+                            ))
+                            .expressionAttributeValues(Map.of(
+                                    ":expected", numberAttribute(expectedPages),
+                                    ":zero", numberAttribute(0),
+                                    ":one", numberAttribute(1)
+                            ))
+                            .returnValues(ReturnValue.UPDATED_NEW)
+            );
+        } catch (ConditionalCheckFailedException e) {
+            // The markers of the previous attempt are left to expire, the pages of the new one do not match them
+            response = dynamoDbClient.updateItem(
+                    br -> br.tableName(getTableName())
+                            .key(primaryKey(BOOK_ID, USER_EMAIL, bookId))
+                            .updateExpression("SET #expected = :expected, #loaded = :zero REMOVE #triggeredAt ADD #attempt :one, #version :one")
+                            .expressionAttributeNames(Map.of(
+                                    "#expected", EXPECTED_PAGES,
+                                    "#loaded", LOADED_PAGES,
+                                    "#attempt", LOADING_ATTEMPT,
+                                    "#triggeredAt", ASSEMBLY_TRIGGERED_AT,
+                                    "#version", VERSION
+                            ))
+                            .expressionAttributeValues(Map.of(
+                                    ":expected", numberAttribute(expectedPages),
+                                    ":zero", numberAttribute(0),
+                                    ":one", numberAttribute(1)
+                            ))
+                            .returnValues(ReturnValue.UPDATED_NEW)
+            );
+        }
+        return numberOrDefault(response.attributes(), LOADING_ATTEMPT, 1);
+    }
+
+    /**
+     * Counts the page as loaded and tells whether the caller has to trigger the book assembly.
+     * A page is counted once per loading attempt even if its message is delivered several times, pages of
+     * a superseded attempt are not counted at all, and only one caller gets {@code true} for the attempt,
+     * when the number of loaded pages reaches the expected one.
+     */
+    public boolean registerLoadedPage(final String bookId, final long attempt, final String pageKey) {
+        final var pageMarker = Map.of(
+                BOOK_ID, stringAttribute(bookId),
+                USER_EMAIL, stringAttribute(PAGE_MARKER_PREFIX + attempt + PAGE_MARKER_SEPARATOR + pageKey),
+                EXPIRES_AT, numberAttribute(Instant.now().plus(PAGE_MARKER_TTL).getEpochSecond())
+        );
+        try {
+            dynamoDbClient.transactWriteItems(tr -> tr.transactItems(
+                    TransactWriteItem.builder()
+                            .put(p -> p.tableName(getTableName())
+                                    .item(pageMarker)
+                                    .conditionExpression("attribute_not_exists(#bookId)")
+                                    .expressionAttributeNames(Map.of("#bookId", BOOK_ID)))
+                            .build(),
+                    TransactWriteItem.builder()
+                            .update(u -> u.tableName(getTableName())
+                                    .key(primaryKey(BOOK_ID, USER_EMAIL, bookId))
+                                    .updateExpression("ADD #loaded :one, #version :one")
+                                    .conditionExpression("#attempt = :attempt")
+                                    .expressionAttributeNames(Map.of(
+                                            "#loaded", LOADED_PAGES,
+                                            "#version", VERSION,
+                                            "#attempt", LOADING_ATTEMPT
+                                    ))
+                                    .expressionAttributeValues(Map.of(
+                                            ":one", numberAttribute(1),
+                                            ":attempt", numberAttribute(attempt)
+                                    )))
+                            .build()
+            ));
+        } catch (TransactionCanceledException e) {
+            if (isConditionalCheckFailure(e, 1)) return false;
+            // The page has already been counted by a previous delivery, which may have failed before triggering the assembly
+            if (!isConditionalCheckFailure(e, 0)) throw e;
+        }
+
+        final var progress = dynamoDbClient.getItem(
+                br -> br.tableName(getTableName())
+                        .key(primaryKey(BOOK_ID, USER_EMAIL, bookId))
+                        .consistentRead(true)
+                        .projectionExpression("#expected, #loaded, #attempt")
+                        .expressionAttributeNames(Map.of("#expected", EXPECTED_PAGES, "#loaded", LOADED_PAGES, "#attempt", LOADING_ATTEMPT))
+        ).item();
+        if (numberOrDefault(progress, LOADING_ATTEMPT, 0) != attempt
+                || numberOrDefault(progress, LOADED_PAGES, 0) < numberOrDefault(progress, EXPECTED_PAGES, Long.MAX_VALUE)) {
+            return false;
+        }
+
+        try {
+            dynamoDbClient.updateItem(
+                    br -> br.tableName(getTableName())
+                            .key(primaryKey(BOOK_ID, USER_EMAIL, bookId))
+                            .updateExpression("SET #triggeredAt = :now")
+                            .conditionExpression("attribute_not_exists(#triggeredAt) AND #attempt = :attempt AND #loaded >= #expected")
+                            .expressionAttributeNames(Map.of(
+                                    "#triggeredAt", ASSEMBLY_TRIGGERED_AT,
+                                    "#attempt", LOADING_ATTEMPT,
+                                    "#loaded", LOADED_PAGES,
+                                    "#expected", EXPECTED_PAGES
+                            ))
+                            .expressionAttributeValues(Map.of(
+                                    ":now", stringAttribute(OffsetDateTime.now().format(ISO_OFFSET_DATE_TIME)),
+                                    ":attempt", numberAttribute(attempt)
+                            ))
+            );
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads only the status and the loading progress of the book.
+     */
+    public Optional<BookStatus> findBookStatus(final String bookId) {
+        final var item = dynamoDbClient.getItem(
+                br -> br.tableName(getTableName())
+                        .key(primaryKey(BOOK_ID, USER_EMAIL, bookId))
+                        .projectionExpression("#status, #expected, #loaded, #version")
+                        .expressionAttributeNames(Map.of(
+                                "#status", STATUS,
+                                "#expected", EXPECTED_PAGES,
+                                "#loaded", LOADED_PAGES,
+                                "#version", VERSION
+                        ))
+        ).item();
+        if (item == null || item.isEmpty()) return Optional.empty();
+
+        return Optional.of(BookStatus.builder()
+                .bookId(bookId)
+                .status(item.containsKey(STATUS) ? item.get(STATUS).s() : null)
+                .expectedPages(item.containsKey(EXPECTED_PAGES) ? numberOrDefault(item, EXPECTED_PAGES, 0) : null)
+                .loadedPages(numberOrDefault(item, LOADED_PAGES, 0))
+                .version(numberOrDefault(item, VERSION, 0))
+                .build());
+    }
+
     public Optional<BookInfo> findByBookId(final String bookId) {
         return findByBookIds(List.of(bookId))
                 .stream()
@@ -57,44 +378,130 @@ public class BookRepository {
     }
 
     public List<BookInfo> findByBookIds(final List<String> bookIds) {
-        final var keysAndAttributes = KeysAndAttributes.builder()
-                .keys(bookIds.stream()
-                        .map(id -> Map.of(BOOK_ID, stringAttribute(id), USER_EMAIL, stringAttribute(id)))
-                        .collect(toList())
-                )
-                .build();
-        final var requestItems = Map.of(getTableName(), keysAndAttributes);
-        final var request = BatchGetItemRequest.builder()
-                .requestItems(requestItems)
-                .build();
-
-        return dynamoDbClient.batchGetItem(request)
-                .responses()
-                .get(getTableName())
-                .stream()
-                .map(mapper::mapToBook)
-                .sorted(comparing(BookInfo::getId, comparingInt(bookIds::indexOf)))
-                .collect(toList());
-    }
-
-    public List<String> findBookIdsByUserEmail(final String userEmail) {
-        final var queryRequest = QueryRequest.builder()
-                .tableName(getTableName())
-                .indexName(getTableIndexName())
-                .keyConditionExpression("#userEmail = :email")
-                .expressionAttributeNames(Map.of("#userEmail", USER_EMAIL))
-                .expressionAttributeValues(Map.of(":email", stringAttribute(userEmail)))
-                .scanIndexForward(false)
-                .limit(5)
-                .build();
-
-        return dynamoDbClient.query(queryRequest)
-                .items()
-                .stream()
-                .filter(item -> item.containsKey(BOOK_ID))
-                .map(item -> item.get(BOOK_ID))
-                .map(AttributeValue::s)
-                .distinct()
-                .collect(toList());
+        return batchReader.read(getTableName(), bookIds);
+    }
+
+    /**
+     * Finds the IDs of the books last requested by the user, each book once per page, starting after the given cursor.
+     * The cursor of the next page points to the last request read, so the requests left on a query page are not skipped.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public BookIdsPage findBookIdsByUserEmail(final String userEmail, final int limit, final String cursor) {
+        final var bookIds = new LinkedHashSet<String>();
+        var startKey = decodeCursor(userEmail, cursor);
+        var more = true;
+        while (more && bookIds.size() < limit) {
+            final var queryRequest = QueryRequest.builder()
+                    .tableName(getTableName())
+                    .indexName(getTableIndexName())
+                    .keyConditionExpression("#userEmail = :email")
+                    .expressionAttributeNames(Map.of("#userEmail", USER_EMAIL))
+                    .expressionAttributeValues(Map.of(":email", stringAttribute(userEmail)))
+                    .scanIndexForward(false)
+                    .exclusiveStartKey(startKey)
+                    .limit(Math.min(limit - bookIds.size(), MAX_QUERY_PAGE_SIZE))
+                    .build();
+            final var response = dynamoDbClient.query(queryRequest);
+
+            final var items = response.items();
+            var read = 0;
+            while (read < items.size() && bookIds.size() < limit) {
+                final var item = items.get(read++);
+                if (item.containsKey(BOOK_ID)) bookIds.add(item.get(BOOK_ID).s());
+            }
+            more = read < items.size() || !response.lastEvaluatedKey().isEmpty();
+            startKey = read < items.size() ? indexKey(items.get(read - 1)) : response.lastEvaluatedKey();
+        }
+        return new BookIdsPage(new ArrayList<>(bookIds), more ? encodeCursor(startKey) : null);
+    }
+
+    private static Map<String, AttributeValue> indexKey(final Map<String, AttributeValue> item) {
+        return Map.of(
+                BOOK_ID, item.get(BOOK_ID),
+                USER_EMAIL, item.get(USER_EMAIL),
+                REQUESTED_AT, item.get(REQUESTED_AT)
+        );
+    }
+
+    /**
+     * The user of the cursor is the one making the request, so only the position within their requests is encoded.
+     */
+    private static String encodeCursor(final Map<String, AttributeValue> startKey) {
+        final var position = startKey.get(REQUESTED_AT).s() + CURSOR_SEPARATOR + startKey.get(BOOK_ID).s();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(UTF_8));
+    }
+
+    private static Map<String, AttributeValue> decodeCursor(final String userEmail, final String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        final String[] position;
+        try {
+            position = new String(Base64.getUrlDecoder().decode(cursor), UTF_8).split(CURSOR_SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(format("The cursor %s is malformed", cursor), e);
+        }
+        if (position.length != 2 || position[0].isBlank() || position[1].isBlank()) {
+            throw new IllegalArgumentException(format("The cursor %s is malformed", cursor));
+        }
+        return Map.of(
+                BOOK_ID, stringAttribute(position[1]),
+                USER_EMAIL, stringAttribute(userEmail),
+                REQUESTED_AT, stringAttribute(position[0])
+        );
+    }
+
+    private void batchWrite(final List<WriteRequest> writeRequests) {
+        Map<String, List<WriteRequest>> unprocessed = singletonMap(getTableName(), writeRequests);
+        for (int attempt = 1; !unprocessed.isEmpty(); attempt++) {
+            if (attempt > MAX_BATCH_WRITE_ATTEMPTS) {
+                throw new IllegalStateException(format("Failed to write %d items after %d attempts", unprocessed.values().stream().mapToInt(List::size).sum(), MAX_BATCH_WRITE_ATTEMPTS));
+            }
+            if (attempt > 1) {
+                metrics().count(BATCH_RETRIES, 1);
+                backOff(attempt);
+            }
+            final var requestItems = unprocessed;
+            unprocessed = dynamoDbClient.batchWriteItem(br -> br.requestItems(requestItems)).unprocessedItems();
+        }
+    }
+
+    private static void backOff(final int attempt) {
+        final var backoff = BASE_BACKOFF_MILLIS << (attempt - 2);
+        try {
+            Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing items", e);
+        }
+    }
+
+    /**
+     * Timestamps of the book items are compared as strings, so they are all in UTC and of the same length.
+     */
+    private static String timestamp(final Instant instant) {
+        return instant.truncatedTo(ChronoUnit.SECONDS).atOffset(ZoneOffset.UTC).format(ISO_OFFSET_DATE_TIME);
+    }
+
+    /**
+     * Tells whether the item at the given index of the transaction has failed its condition.
+     */
+    private boolean isConditionalCheckFailure(final TransactionCanceledException e, final int index) {
+        final var reasons = e.cancellationReasons();
+        return index < reasons.size() && "ConditionalCheckFailed".equals(reasons.get(index).code());
+    }
+
+    private static final String PAGE_MARKER_PREFIX = "page#";
+    private static final String PAGE_MARKER_SEPARATOR = "#";
+    private static final Duration PAGE_MARKER_TTL = Duration.ofDays(1);
+    private static final int MAX_QUERY_PAGE_SIZE = 100;
+    private static final String CURSOR_SEPARATOR = "\n";
+    private static final int MAX_BATCH_WRITE_SIZE = 25;
+    private static final int MAX_BATCH_WRITE_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MILLIS = 50;
+
+    @Value
+    public static class BookIdsPage {
+        List<String> bookIds;
+        String cursor;
     }
 }
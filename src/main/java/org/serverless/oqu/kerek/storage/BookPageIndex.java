@@ -0,0 +1,140 @@
+package org.serverless.oqu.kerek.storage;
+
+import lombok.RequiredArgsConstructor;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.lang.Character.isDigit;
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Index of the objects stored under the book's directory. The listing is paginated lazily,
+ * so streams which stop early read only as many pages of the listing as needed.
+ */
+@RequiredArgsConstructor
+public class BookPageIndex {
+
+    public static final String LAST_PAGE_NAME = "last";
+    public static final String PAGES_READY_MARKER = "pages.ready";
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final String bookId;
+
+    public Stream<S3Object> objects() {
+        return objects(directory());
+    }
+
+    public Stream<S3Object> pages() {
+        return objects().filter(object -> isPage(object.key()));
+    }
+
+    public List<S3Object> sortedPages() {
+        return pages()
+                .sorted(Comparator.comparing(S3Object::key, PAGE_ORDER))
+                .collect(toList());
+    }
+
+    /**
+     * Checks the known key of the book with a HEAD request, which is cheaper than listing.
+     */
+    public boolean hasPdf() {
+        try {
+            s3Client.headObject(r -> r.bucket(bucketName).key(bookPdfKey()));
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) return false;
+            throw e;
+        }
+    }
+
+    public String bookPdfKey() {
+        return format("%s%s.pdf", directory(), "book");
+    }
+
+    /**
+     * Key of the empty object which is created once all pages of the book have been loaded and triggers the assembly.
+     */
+    public String pagesReadyKey() {
+        return directory() + PAGES_READY_MARKER;
+    }
+
+    private Stream<S3Object> objects(final String prefix) {
+        final var request = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .build();
+        return s3Client.listObjectsV2Paginator(request)
+                .contents()
+                .stream();
+    }
+
+    private String directory() {
+        return bookId + "/";
+    }
+
+    private boolean isPage(final String key) {
+        final var name = key.substring(directory().length());
+        return !name.contains("/") && !name.endsWith(".pdf") && !name.equals(PAGES_READY_MARKER);
+    }
+
+    /**
+     * Orders page keys naturally, comparing runs of digits by their numeric value, so that {@code 2.png}
+     * goes before {@code 10.png}. The page named {@code last} goes after everything else.
+     */
+    public static final Comparator<String> PAGE_ORDER = BookPageIndex::comparePageKeys;
+
+    private static int comparePageKeys(final String a, final String b) {
+        final var isLastA = isLastPage(a);
+        if (isLastA != isLastPage(b)) return isLastA ? 1 : -1;
+
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            final var ca = a.charAt(i);
+            final var cb = b.charAt(j);
+            if (isDigit(ca) && isDigit(cb)) {
+                final var startA = skipZeros(a, i);
+                final var startB = skipZeros(b, j);
+                final var endA = skipDigits(a, startA);
+                final var endB = skipDigits(b, startB);
+                if (endA - startA != endB - startB) return (endA - startA) - (endB - startB);
+                for (int k = 0; k < endA - startA; k++) {
+                    final var diff = a.charAt(startA + k) - b.charAt(startB + k);
+                    if (diff != 0) return diff;
+                }
+                i = endA;
+                j = endB;
+            } else {
+                if (ca != cb) return ca - cb;
+                i++;
+                j++;
+            }
+        }
+        return (a.length() - i) - (b.length() - j);
+    }
+
+    private static boolean isLastPage(final String key) {
+        return key.startsWith(LAST_PAGE_NAME + ".", key.lastIndexOf('/') + 1);
+    }
+
+    private static int skipZeros(final String value, int index) {
+        while (index < value.length() && value.charAt(index) == '0') index++;
+        return index;
+    }
+
+    private static int skipDigits(final String value, int index) {
+        while (index < value.length() && isDigit(value.charAt(index))) index++;
+        return index;
+    }
+}
@@ -0,0 +1,115 @@
+package org.serverless.oqu.kerek.storage;
+
+import lombok.RequiredArgsConstructor;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static java.lang.String.format;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+/**
+ * Reads book pages ahead of the consumer with a bounded number of concurrent requests.
+ * Pages are returned in the order of the given objects, and the total size of pages
+ * being fetched or waiting to be consumed never exceeds {@code maxBytesInFlight}
+ * (a single page larger than the limit is still fetched, but alone).
+ */
+public class BookPagesPrefetcher implements Iterator<byte[]>, AutoCloseable {
+
+    private final List<S3Object> objects;
+    private final ObjectReader reader;
+    private final int concurrency;
+    private final int maxBytesInFlight;
+    private final Semaphore bytesInFlight;
+    private final ExecutorService executor;
+    private final Deque<PendingPage> pending = new ArrayDeque<>();
+
+    private int nextToSubmit = 0;
+    private int consumedPermits = 0;
+
+    public BookPagesPrefetcher(final List<S3Object> objects, final ObjectReader reader, final int concurrency, final int maxBytesInFlight) {
+        if (concurrency < 1) throw new IllegalArgumentException("Concurrency must be positive");
+        if (maxBytesInFlight < 1) throw new IllegalArgumentException("Max bytes in flight must be positive");
+        this.objects = objects;
+        this.reader = reader;
+        this.concurrency = concurrency;
+        this.maxBytesInFlight = maxBytesInFlight;
+        this.bytesInFlight = new Semaphore(maxBytesInFlight);
+        this.executor = newFixedThreadPool(concurrency);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !pending.isEmpty() || nextToSubmit < objects.size();
+    }
+
+    @Override
+    public byte[] next() {
+        if (!hasNext()) throw new NoSuchElementException();
+
+        bytesInFlight.release(consumedPermits);
+        consumedPermits = 0;
+        submitPages();
+
+        // The permits of the page are held until the consumer asks for the next one
+        final var page = pending.poll();
+        consumedPermits = page.permits;
+        submitPages();
+        try {
+            return page.content.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(format("Interrupted while reading object %s", page.key), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw new UncheckedIOException((IOException) e.getCause());
+            throw new IllegalStateException(format("Failed to read object %s", page.key), e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void submitPages() {
+        while (nextToSubmit < objects.size() && pending.size() < concurrency) {
+            final var object = objects.get(nextToSubmit);
+            final var permits = permitsFor(object);
+
+            // Only when no page is pending or held by the consumer all permits are free, so waiting for them never blocks
+            if (pending.isEmpty() && consumedPermits == 0) bytesInFlight.acquireUninterruptibly(permits);
+            else if (!bytesInFlight.tryAcquire(permits)) return;
+
+            pending.add(new PendingPage(object.key(), permits, executor.submit(() -> reader.read(object.key()))));
+            nextToSubmit++;
+        }
+    }
+
+    private int permitsFor(final S3Object object) {
+        final long size = Optional.ofNullable(object.size()).orElse(0L);
+        return (int) Math.max(1, Math.min(size, maxBytesInFlight));
+    }
+
+    @FunctionalInterface
+    public interface ObjectReader {
+        byte[] read(String key) throws IOException;
+    }
+
+    @RequiredArgsConstructor
+    private static class PendingPage {
+        private final String key;
+        private final int permits;
+        private final Future<byte[]> content;
+    }
+}
@@ -0,0 +1,195 @@
+package org.serverless.oqu.kerek.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static java.lang.String.format;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.serverless.template.Metrics.S3_PUT_BYTES;
+import static org.serverless.template.Metrics.metrics;
+
+/**
+ * Output stream that uploads its content to S3 as a multipart upload while it is being written.
+ * Full parts are uploaded in the background using a fixed pool of part buffers, so writers block
+ * once all buffers are in use. {@link #close()} completes the upload, {@link #abort()} discards it.
+ */
+@Slf4j
+public class S3MultipartOutputStream extends OutputStream {
+
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final S3Client s3Client;
+    private final String bucket;
+    private final String key;
+    private final String uploadId;
+    private final int partSize;
+    private final int poolSize;
+    private final BlockingQueue<byte[]> bufferPool;
+    private final ExecutorService executor;
+    private final List<Future<CompletedPart>> parts = new ArrayList<>();
+
+    private int allocatedBuffers = 0;
+    private byte[] buffer;
+    private int position = 0;
+    private boolean closed = false;
+
+    public S3MultipartOutputStream(final S3Client s3Client, final String bucket, final String key, final String contentType,
+                                   final int partSize, final int partsInFlight) {
+        if (partSize < MIN_PART_SIZE) throw new IllegalArgumentException(format("Part size must be at least %d bytes", MIN_PART_SIZE));
+        if (partsInFlight < 1) throw new IllegalArgumentException("Parts in flight must be positive");
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+        this.key = key;
+        this.partSize = partSize;
+        this.poolSize = partsInFlight + 1;
+        this.bufferPool = new ArrayBlockingQueue<>(poolSize);
+        this.executor = newFixedThreadPool(partsInFlight);
+        this.uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .contentType(contentType)
+                .build()
+        ).uploadId();
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        ensureOpen();
+        if (buffer == null) buffer = takeBuffer();
+        buffer[position++] = (byte) b;
+        if (position == partSize) uploadBufferedPart();
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        ensureOpen();
+        var written = 0;
+        while (written < length) {
+            if (buffer == null) buffer = takeBuffer();
+            final var chunk = Math.min(length - written, partSize - position);
+            System.arraycopy(bytes, offset + written, buffer, position, chunk);
+            position += chunk;
+            written += chunk;
+            if (position == partSize) uploadBufferedPart();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        try {
+            if (position > 0 || parts.isEmpty()) {
+                if (buffer == null) buffer = takeBuffer();
+                uploadBufferedPart();
+            }
+            final var completedParts = new ArrayList<CompletedPart>(parts.size());
+            for (final var part : parts) {
+                completedParts.add(part.get());
+            }
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build()
+            );
+            closed = true;
+            executor.shutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new IOException(format("Interrupted while uploading object %s", key), e);
+        } catch (ExecutionException | SdkException e) {
+            abort();
+            throw new IOException(format("Failed to upload object %s", key), e instanceof ExecutionException ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * Cancels parts which are still being uploaded and aborts the multipart upload,
+     * so that no object is created and no uploaded parts are left to be billed.
+     */
+    public void abort() {
+        if (closed) return;
+        closed = true;
+        parts.forEach(part -> part.cancel(true));
+        executor.shutdownNow();
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build()
+            );
+        } catch (SdkException e) {
+            log.warn("Failed to abort multipart upload {} of object {}: {}", uploadId, key, e.getMessage());
+        }
+    }
+
+    private void uploadBufferedPart() {
+        final var part = buffer;
+        final var length = position;
+        final var partNumber = parts.size() + 1;
+        parts.add(executor.submit(() -> uploadPart(partNumber, part, length)));
+        buffer = null;
+        position = 0;
+    }
+
+    private CompletedPart uploadPart(final int partNumber, final byte[] part, final int length) {
+        try {
+            final var request = UploadPartRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber)
+                    .contentLength((long) length)
+                    .build();
+            final var response = s3Client.uploadPart(request, RequestBody.fromInputStream(new ByteArrayInputStream(part, 0, length), length));
+            metrics().countBytes(S3_PUT_BYTES, length);
+            return CompletedPart.builder()
+                    .partNumber(partNumber)
+                    .eTag(response.eTag())
+                    .build();
+        } finally {
+            bufferPool.offer(part);
+        }
+    }
+
+    private byte[] takeBuffer() throws IOException {
+        final var pooled = bufferPool.poll();
+        if (pooled != null) return pooled;
+        if (allocatedBuffers < poolSize) {
+            allocatedBuffers++;
+            return new byte[partSize];
+        }
+        try {
+            return bufferPool.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(format("Interrupted while waiting for a free part buffer of object %s", key), e);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) throw new IOException(format("Stream of object %s has already been closed", key));
+    }
+}
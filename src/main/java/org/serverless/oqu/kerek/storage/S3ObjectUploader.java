@@ -0,0 +1,80 @@
+package org.serverless.oqu.kerek.storage;
+
+import lombok.RequiredArgsConstructor;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.Files.size;
+import static java.nio.file.Paths.get;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getPdfUploadPartSize;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getPdfUploadPartsInFlight;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.isPdfStreamingUploadEnabled;
+import static org.serverless.template.Metrics.S3_PUT_BYTES;
+import static org.serverless.template.Metrics.metrics;
+import static software.amazon.awssdk.core.sync.RequestBody.fromFile;
+
+/**
+ * Uploads generated content to S3 either as a multipart upload streamed while the content is being written
+ * or, when streaming is disabled, through a temporary file.
+ */
+@RequiredArgsConstructor
+public class S3ObjectUploader {
+
+    private final S3Client s3Client;
+    private final String bucketName;
+
+    public void upload(final String key, final String contentType, final ContentWriter writer) throws IOException {
+        if (isPdfStreamingUploadEnabled()) {
+            streamToS3(key, contentType, writer);
+        } else {
+            uploadFromTempFile(key, contentType, writer);
+        }
+    }
+
+    private void streamToS3(final String key, final String contentType, final ContentWriter writer) throws IOException {
+        final var output = new S3MultipartOutputStream(s3Client, bucketName, key, contentType,
+                getPdfUploadPartSize(), getPdfUploadPartsInFlight());
+        try {
+            writer.writeTo(output);
+        } catch (IOException | RuntimeException e) {
+            output.abort();
+            throw e;
+        }
+        output.close();
+    }
+
+    private void uploadFromTempFile(final String key, final String contentType, final ContentWriter writer) throws IOException {
+        final var tempFile = createTempFile(LAMBDA_TMP_DIR, "upload-", ".tmp");
+        try {
+            try (final var output = newOutputStream(tempFile)) {
+                writer.writeTo(output);
+            }
+            final var putRequest = PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .contentType(contentType)
+                    .build();
+            s3Client.putObject(putRequest, fromFile(tempFile));
+            metrics().countBytes(S3_PUT_BYTES, size(tempFile));
+        } finally {
+            deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Writes the content into the given stream. The stream is completed by the uploader, so it must not be closed.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream output) throws IOException;
+    }
+
+    private static final Path LAMBDA_TMP_DIR = get("/tmp");
+}
@@ -12,6 +12,15 @@ public class DynamoDbUtils {
         return AttributeValue.builder().s(value).build();
     }
 
+    public static AttributeValue numberAttribute(long value) {
+        return AttributeValue.builder().n(String.valueOf(value)).build();
+    }
+
+    public static long numberOrDefault(Map<String, AttributeValue> item, String attribute, long defaultValue) {
+        final var value = item.get(attribute);
+        return value == null || value.n() == null ? defaultValue : Long.parseLong(value.n());
+    }
+
     public static AttributeValueUpdate updateAttribute(String newValue) {
         return AttributeValueUpdate.builder()
                 .value(stringAttribute(newValue))
@@ -19,6 +28,13 @@ public class DynamoDbUtils {
                 .build();
     }
 
+    public static AttributeValueUpdate incrementAttribute() {
+        return AttributeValueUpdate.builder()
+                .value(numberAttribute(1))
+                .action(AttributeAction.ADD)
+                .build();
+    }
+
     public static Map<String, AttributeValue> primaryKey(String partitionKey, String sortKey, String pkValue) {
         return Map.of(
                 partitionKey, stringAttribute(pkValue),
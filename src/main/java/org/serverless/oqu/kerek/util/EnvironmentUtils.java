@@ -1,7 +1,10 @@
 package org.serverless.oqu.kerek.util;
 
+import org.serverless.oqu.kerek.http.RateLimiterSettings;
 import software.amazon.awssdk.regions.Region;
 
+import java.time.Duration;
+
 public class EnvironmentUtils {
 
     public static Region getRegion() {
@@ -23,4 +26,174 @@ public class EnvironmentUtils {
     public static String getQueueName() {
         return System.getenv("QUEUE_NAME");
     }
+
+    public static Duration getOriginConnectTimeout() {
+        return Duration.ofMillis(getIntOrDefault("ORIGIN_CONNECT_TIMEOUT_MS", 5_000));
+    }
+
+    public static Duration getOriginReadTimeout() {
+        return Duration.ofMillis(getIntOrDefault("ORIGIN_READ_TIMEOUT_MS", 30_000));
+    }
+
+    public static int getPageMaxBufferBytes() {
+        return getIntOrDefault("PAGE_MAX_BUFFER_BYTES", 32 * 1024 * 1024);
+    }
+
+    public static int getSqsBatchConcurrency() {
+        return getIntOrDefault("SQS_BATCH_CONCURRENCY", 10);
+    }
+
+    public static int getSqsBatchesInFlight() {
+        return getIntOrDefault("SQS_BATCHES_IN_FLIGHT", 10);
+    }
+
+    public static int getSqsSendMaxAttempts() {
+        return getIntOrDefault("SQS_SEND_MAX_ATTEMPTS", 5);
+    }
+
+    public static int getPagesPrefetchConcurrency() {
+        return getIntOrDefault("PAGES_PREFETCH_CONCURRENCY", 8);
+    }
+
+    public static int getPagesPrefetchMaxBytes() {
+        return getIntOrDefault("PAGES_PREFETCH_MAX_BYTES", 64 * 1024 * 1024);
+    }
+
+    public static boolean isPdfStreamingUploadEnabled() {
+        return getBooleanOrDefault("PDF_STREAMING_UPLOAD_ENABLED", true);
+    }
+
+    public static int getPdfUploadPartSize() {
+        return getIntOrDefault("PDF_UPLOAD_PART_SIZE", 8 * 1024 * 1024);
+    }
+
+    public static int getPdfUploadPartsInFlight() {
+        return getIntOrDefault("PDF_UPLOAD_PARTS_IN_FLIGHT", 4);
+    }
+
+    public static String getSegmentsQueueName() {
+        return System.getenv("SEGMENTS_QUEUE_NAME");
+    }
+
+    public static int getSegmentedAssemblyMinPages() {
+        return getIntOrDefault("SEGMENTED_ASSEMBLY_MIN_PAGES", 1000);
+    }
+
+    public static int getAssemblySegmentSize() {
+        return getIntOrDefault("ASSEMBLY_SEGMENT_SIZE", 250);
+    }
+
+    public static int getBookCacheMaxSize() {
+        return getIntOrDefault("BOOK_CACHE_MAX_SIZE", 1000);
+    }
+
+    public static Duration getBookCacheReadyTtl() {
+        return Duration.ofSeconds(getIntOrDefault("BOOK_CACHE_READY_TTL_SECONDS", 600));
+    }
+
+    public static Duration getBookCachePendingTtl() {
+        return Duration.ofSeconds(getIntOrDefault("BOOK_CACHE_PENDING_TTL_SECONDS", 30));
+    }
+
+    public static boolean isAsyncBookRegistrationEnabled() {
+        return getBooleanOrDefault("ASYNC_BOOK_REGISTRATION_ENABLED", false);
+    }
+
+    /**
+     * Time after which a book still pending is taken for lost by the pipeline and enqueued again.
+     */
+    public static Duration getPendingBookRetryAfter() {
+        return Duration.ofMinutes(getIntOrDefault("PENDING_BOOK_RETRY_AFTER_MINUTES", 20));
+    }
+
+    public static int getBookBatchMaxSize() {
+        return getIntOrDefault("BOOK_BATCH_MAX_SIZE", 50);
+    }
+
+    public static int getBatchGetParallelism() {
+        return getIntOrDefault("BATCH_GET_PARALLELISM", 4);
+    }
+
+    public static int getBatchRegisterParallelism() {
+        return getIntOrDefault("BATCH_REGISTER_PARALLELISM", 8);
+    }
+
+    public static int getBatchGetMaxAttempts() {
+        return getIntOrDefault("BATCH_GET_MAX_ATTEMPTS", 5);
+    }
+
+    public static Duration getStatusMaxWait() {
+        return Duration.ofSeconds(getIntOrDefault("STATUS_MAX_WAIT_SECONDS", 20));
+    }
+
+    public static Duration getStatusPollInterval() {
+        return Duration.ofMillis(getIntOrDefault("STATUS_POLL_INTERVAL_MS", 1000));
+    }
+
+    public static Duration getDownloadLinkDuration() {
+        return Duration.ofHours(getIntOrDefault("DOWNLOAD_LINK_DURATION_HOURS", 72));
+    }
+
+    public static Duration getDownloadLinkCacheTtl() {
+        return Duration.ofMinutes(getIntOrDefault("DOWNLOAD_LINK_CACHE_TTL_MINUTES", 60));
+    }
+
+    public static int getDownloadLinkCacheMaxSize() {
+        return getIntOrDefault("DOWNLOAD_LINK_CACHE_MAX_SIZE", 1000);
+    }
+
+    public static String getRateLimiterTableName() {
+        return System.getenv("RATE_LIMITER_TABLE_NAME");
+    }
+
+    public static RateLimiterSettings getOriginRateLimiterSettings() {
+        return RateLimiterSettings.builder()
+                .initialRate(getIntOrDefault("ORIGIN_RATE_INITIAL", 10))
+                .minRate(getIntOrDefault("ORIGIN_RATE_MIN", 1))
+                .maxRate(getIntOrDefault("ORIGIN_RATE_MAX", 50))
+                .burst(getIntOrDefault("ORIGIN_RATE_BURST", 20))
+                .latencyThreshold(Duration.ofMillis(getIntOrDefault("ORIGIN_LATENCY_THRESHOLD_MS", 5_000)))
+                .failureThreshold(getIntOrDefault("ORIGIN_CIRCUIT_FAILURE_THRESHOLD", 5))
+                .openDuration(Duration.ofMillis(getIntOrDefault("ORIGIN_CIRCUIT_OPEN_MS", 30_000)))
+                .build();
+    }
+
+    public static boolean isPageHedgingEnabled() {
+        return getBooleanOrDefault("PAGE_HEDGING_ENABLED", false);
+    }
+
+    public static int getPageHedgingPercentile() {
+        return getIntOrDefault("PAGE_HEDGING_PERCENTILE", 95);
+    }
+
+    public static int getPageHedgingMaxExtraLoadPercent() {
+        return getIntOrDefault("PAGE_HEDGING_MAX_EXTRA_LOAD_PERCENT", 5);
+    }
+
+    public static int getPageHedgingMinDelayMillis() {
+        return getIntOrDefault("PAGE_HEDGING_MIN_DELAY_MS", 500);
+    }
+
+    public static boolean isSnapStartPrimingEnabled() {
+        return getBooleanOrDefault("SNAPSTART_PRIMING_ENABLED", true);
+    }
+
+    public static boolean isMetricsEnabled() {
+        return getBooleanOrDefault("METRICS_ENABLED", true);
+    }
+
+    public static String getMetricsNamespace() {
+        final var namespace = System.getenv("METRICS_NAMESPACE");
+        return namespace == null || namespace.isBlank() ? "OquKerek" : namespace;
+    }
+
+    private static boolean getBooleanOrDefault(final String name, final boolean defaultValue) {
+        final var value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    private static int getIntOrDefault(final String name, final int defaultValue) {
+        final var value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
 }
@@ -3,22 +3,29 @@ package org.serverless.oqu.kerek.util;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import org.serverless.oqu.kerek.http.OriginClient;
+import org.serverless.oqu.kerek.http.OriginException;
+import org.serverless.oqu.kerek.model.BookInfo;
 import org.serverless.oqu.kerek.model.BookShortInfo;
 
 import java.io.IOException;
-import java.net.URL;
-import java.util.*;
-import java.util.function.Predicate;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import static java.lang.String.format;
 import static java.util.Collections.emptyList;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.ofNullable;
 import static java.util.function.Predicate.not;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getOriginConnectTimeout;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getOriginReadTimeout;
 import static software.amazon.awssdk.utils.StringUtils.isBlank;
 
 
@@ -27,41 +34,98 @@ public final class HtmlParseUtils {
     private HtmlParseUtils() {
     }
 
-    private static final String SCRIPT_REGEX = "^pages.push\\(\"(/\\w+){7}\\.png\\?time=\\d+&amp;key=\\w+\"\\);$";
-    private static final Pattern SCRIPT_PATTERN = Pattern.compile(SCRIPT_REGEX, Pattern.CASE_INSENSITIVE);
     private static final Pattern PAGE_PATH_PATTERN = Pattern.compile("(/\\w+){7}\\.png\\?time=\\d+&amp;key=\\w+");
+    private static final byte[] PAGES_PUSH_PREFIX = "pages.push(\"".getBytes(StandardCharsets.US_ASCII);
+    private static final String PAGES_PUSH_SUFFIX = "\");";
+    private static final int MAX_PAGE_PATH_LENGTH = 512;
+    private static final String PRIMING_BOOK_PAGE = "/priming/book-page.html";
 
     public static List<String> parseBookPagesUrls(String url) {
-        Document bookPage;
+        return parseBookPagesUrls(url, DefaultOriginClient.INSTANCE);
+    }
 
-        try {
-            bookPage = Jsoup.parse(new URL(url), 30_000);
+    public static List<String> parseBookPagesUrls(String url, OriginClient originClient) {
+        try (final var response = originClient.getPage(url)) {
+            return extractPagePaths(response.body());
         } catch (IOException e) {
             System.err.printf("Error occurred while trying to parse URL %s : %s%n", url, e.getMessage());
             return emptyList();
         }
+    }
 
-        Elements elements = bookPage.select("script");
-        List<String> pages = new LinkedList<>();
-
-        for (Element element : elements) {
-            StringTokenizer tokenizer = new StringTokenizer(element.data());
-            while (tokenizer.hasMoreTokens()) {
-                pages.add(parsePagePath(tokenizer.nextElement().toString()));
+    /**
+     * Extracts page paths from the {@code pages.push("...");} statements of the book view page in a single pass
+     * over the raw body, without parsing it. Like the statements, the body is split into whitespace separated
+     * tokens, and only the characters of the tokens starting with {@code pages.push("} are kept. The prefix is matched
+     * regardless of case, like the script pattern used to be.
+     */
+    public static List<String> extractPagePaths(final InputStream body) throws IOException {
+        final var paths = new ArrayList<String>();
+        final var matcher = PAGE_PATH_PATTERN.matcher("");
+        final var token = new StringBuilder(MAX_PAGE_PATH_LENGTH);
+        final var buffer = new byte[8192];
+        var position = 0;
+        var rejected = false;
+
+        for (int read = body.read(buffer); read != -1; read = body.read(buffer)) {
+            for (int i = 0; i < read; i++) {
+                final var b = buffer[i];
+                if (isWhitespace(b)) {
+                    if (!rejected && position > PAGES_PUSH_PREFIX.length) addPagePath(token, matcher, paths);
+                    token.setLength(0);
+                    position = 0;
+                    rejected = false;
+                } else if (rejected) {
+                    continue;
+                } else if (position < PAGES_PUSH_PREFIX.length) {
+                    rejected = toLowerCase(b) != PAGES_PUSH_PREFIX[position++];
+                } else if (token.length() < MAX_PAGE_PATH_LENGTH) {
+                    token.append((char) b);
+                    position++;
+                } else {
+                    rejected = true;
+                }
             }
         }
-        return pages.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        if (!rejected && position > PAGES_PUSH_PREFIX.length) addPagePath(token, matcher, paths);
+        return paths;
+    }
+
+    private static void addPagePath(final StringBuilder token, final Matcher matcher, final List<String> paths) {
+        final var pathLength = token.length() - PAGES_PUSH_SUFFIX.length();
+        if (pathLength <= 0 || token.indexOf(PAGES_PUSH_SUFFIX, pathLength) != pathLength) return;
+        if (matcher.reset(token).region(0, pathLength).matches()) {
+            paths.add(token.substring(0, pathLength));
+        }
+    }
+
+    private static byte toLowerCase(final byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static boolean isWhitespace(final byte b) {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f';
     }
 
     public static Optional<BookShortInfo> parseBookInfo(final String url) {
+        return parseBookInfo(url, DefaultOriginClient.INSTANCE);
+    }
+
+    public static Optional<BookShortInfo> parseBookInfo(final String url, final OriginClient originClient) {
         Document bookPage;
-        try {
-            bookPage = Jsoup.parse(new URL(url), 30_000);
+        try (final var response = originClient.getPage(url)) {
+            bookPage = Jsoup.parse(response.body(), response.charset().map(Charset::name).orElse(null), url);
         } catch (IOException e) {
             System.err.printf("Error occurred while trying to parse URL %s : %s%n", url, e.getMessage());
             return Optional.empty();
         }
+        return Optional.of(parseBookInfo(bookPage));
+    }
 
+    /**
+     * Reads the title, the author and the cover of the book from its parsed page.
+     */
+    public static BookShortInfo parseBookInfo(final Document bookPage) {
         final var title = ofNullable(bookPage.select(".arrival-title").first())
                 .map(Element::text)
                 .filter(not(String::isBlank))
@@ -77,22 +141,76 @@ public final class HtmlParseUtils {
                 .map(path -> format("https://kazneb.kz%s", path))
                 .orElse(null);
 
-        return Optional.of(BookShortInfo.builder()
+        return BookShortInfo.builder()
                 .title(title)
                 .author(author)
                 .imageUrl(imageUrl)
-                .build()
-        );
+                .build();
     }
 
-    public static String parsePagePath(String scriptLine) {
+    /**
+     * Parses the info of the book with the given ID from its page in the catalogue.
+     */
+    public static Optional<BookInfo> parseBookInfoById(final String bookId, final OriginClient originClient) {
+        return parseBookInfo(catalogueUrl(bookId), originClient).map(bookShortInfo -> toBookInfo(bookId, bookShortInfo));
+    }
 
-        if (!SCRIPT_PATTERN.matcher(scriptLine).matches()) {
-            return null;
+    /**
+     * Parses the info of the book with the given ID from its page in the catalogue, telling a book missing
+     * from the origin from a failure to reach it.
+     *
+     * @return empty if the origin has no book with the ID
+     * @throws IOException if the page cannot be fetched for another reason, so fetching it again may succeed
+     */
+    public static Optional<BookInfo> fetchBookInfoById(final String bookId, final OriginClient originClient) throws IOException {
+        final var url = catalogueUrl(bookId);
+        final Document bookPage;
+        try (final var response = originClient.getPage(url)) {
+            bookPage = Jsoup.parse(response.body(), response.charset().map(Charset::name).orElse(null), url);
+        } catch (OriginException e) {
+            if (e.getStatusCode() == 404 || e.getStatusCode() == 410) return Optional.empty();
+            throw e;
         }
+        return Optional.of(toBookInfo(bookId, parseBookInfo(bookPage)));
+    }
+
+    private static String catalogueUrl(final String bookId) {
+        return format("https://kazneb.kz/ru/catalogue/view/%s", bookId);
+    }
 
-        Matcher matcher = PAGE_PATH_PATTERN.matcher(scriptLine);
+    private static BookInfo toBookInfo(final String bookId, final BookShortInfo bookShortInfo) {
+        return BookInfo.builder()
+                .id(bookId)
+                .title(bookShortInfo.getTitle())
+                .author(bookShortInfo.getAuthor())
+                .imageUrl(bookShortInfo.getImageUrl())
+                .build();
+    }
+
+    /**
+     * Parses a bundled book page the same way as the pages of the origin, to warm up jsoup and the page path extraction.
+     */
+    public static void prime() {
+        try (final var body = openPrimingBookPage()) {
+            parseBookInfo(Jsoup.parse(body, StandardCharsets.UTF_8.name(), "https://kazneb.kz/"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try (final var body = openPrimingBookPage()) {
+            extractPagePaths(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static InputStream openPrimingBookPage() {
+        return requireNonNull(HtmlParseUtils.class.getResourceAsStream(PRIMING_BOOK_PAGE), PRIMING_BOOK_PAGE);
+    }
 
-        return matcher.find() ? matcher.group() : null;
+    /**
+     * Client for the calls made outside of the handlers, created on the first use.
+     */
+    private static final class DefaultOriginClient {
+        private static final OriginClient INSTANCE = new OriginClient(getOriginConnectTimeout(), getOriginReadTimeout());
     }
 }
@@ -0,0 +1,47 @@
+package org.serverless.oqu.kerek.util;
+
+import com.google.gson.GsonBuilder;
+import org.serverless.oqu.kerek.model.BookInfo;
+import org.serverless.oqu.kerek.model.BookRequestContext;
+import org.serverless.oqu.kerek.repo.BookMapper;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Warm-up routines run before the SnapStart checkpoint, so the classes they load and the code they run
+ * are already in the snapshot when the first request comes. They work on bundled fixtures and never
+ * touch the network, so no connection or credentials end up in the snapshot. Routines which need jsoup or iText
+ * live next to the code they warm up, {@link HtmlParseUtils#prime()} and {@code BookPdfRenderer#prime()}, so the
+ * functions deployed without those libraries can still load this class.
+ */
+public final class PrimingRoutines {
+
+    private PrimingRoutines() {
+    }
+
+    private static final BookInfo BOOK = BookInfo.builder()
+            .id("1628186")
+            .title("Айқап")
+            .author("Сералин М.")
+            .imageUrl("https://kazneb.kz/FileStore/dataFiles/priming/cover.png")
+            .status("Ready")
+            .build();
+
+    public static void bookMapper() {
+        final var mapper = new BookMapper();
+        mapper.mapToBook(mapper.mapToBookItem(BOOK));
+        mapper.mapToUserItem(BookRequestContext.builder()
+                .bookId(BOOK.getId())
+                .userEmail("reader@oqukerek.de")
+                .requestedAt(OffsetDateTime.now())
+                .build());
+    }
+
+    public static void json() {
+        final var gson = new GsonBuilder()
+                .setPrettyPrinting()
+                .disableHtmlEscaping()
+                .create();
+        gson.fromJson(gson.toJson(BOOK), BookInfo.class);
+    }
+}
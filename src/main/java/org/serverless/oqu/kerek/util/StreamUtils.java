@@ -0,0 +1,41 @@
+package org.serverless.oqu.kerek.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public final class StreamUtils {
+
+    private StreamUtils() {
+    }
+
+    /**
+     * Lazily splits the stream into lists of the given size, the last one may be smaller.
+     */
+    public static <T> Stream<List<T>> chunked(final Stream<T> stream, final int chunkSize) {
+        final var source = stream.iterator();
+        final var chunks = new Iterator<List<T>>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public List<T> next() {
+                if (!source.hasNext()) throw new NoSuchElementException();
+                final var chunk = new ArrayList<T>(chunkSize);
+                while (chunk.size() < chunkSize && source.hasNext()) {
+                    chunk.add(source.next());
+                }
+                return chunk;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(stream::close);
+    }
+}
@@ -29,4 +29,8 @@ public final class URLUtils {
             throw new ClientException(400, format("The URL (%s) is malformed", url));
         }
     }
+
+    public static String bookViewUrl(String bookId) {
+        return format("https://kazneb.kz/ru/bookView/view?brId=%s&simple=true", bookId);
+    }
 }
@@ -24,7 +24,7 @@ public abstract class ApiGatewayEventHandler<T, R> extends BaseHandler<T, R, API
             "Content-Type", "application/json",
             "Access-Control-Allow-Origin", "*",
             "Access-Control-Allow-Methods", "OPTIONS,POST,GET",
-            "Access-Control-Allow-Headers", "Content-Type,X-Amz-Date,Authorization,X-Api-Key,X-Amz-Security-Token,X-Forwarded-For"
+            "Access-Control-Allow-Headers", "Content-Type,X-Amz-Date,Authorization,X-Api-Key,X-Amz-Security-Token,X-Forwarded-For,If-None-Match"
     );
     protected final Class<T> inputType;
 
@@ -33,6 +33,12 @@ public abstract class ApiGatewayEventHandler<T, R> extends BaseHandler<T, R, API
 
     @Override
     public APIGatewayProxyResponseEvent handleRequest(final APIGatewayProxyRequestEvent input, final Context context) {
+        final var response = handle(input, context);
+        flushMetrics(outcome(response.getStatusCode()));
+        return response;
+    }
+
+    private APIGatewayProxyResponseEvent handle(final APIGatewayProxyRequestEvent input, final Context context) {
         try {
             log(context, "Starting processing request %s with input: %s", input.getRequestContext().getRequestId(), input.getBody());
             if (input.getRequestContext().getAuthorizer() != null) {
@@ -42,13 +48,14 @@ public abstract class ApiGatewayEventHandler<T, R> extends BaseHandler<T, R, API
             }
 
             final var request = getRequestData(input);
-            final var response = gson.toJson(doHandleRequest(request, context));
+            final var result = doHandleRequest(request, context);
+            final var response = toJson(request, result);
 
             log(context, "Completed processing request %s with output: %s", input.getRequestContext().getRequestId(), response);
 
             return new APIGatewayProxyResponseEvent()
-                    .withStatusCode(200)
-                    .withHeaders(headers)
+                    .withStatusCode(statusCode(request, result))
+                    .withHeaders(headers(request, result))
                     .withBody(response);
         } catch (ClientException e) {
             log(context, "Client exception occurred while processing request %s: %s", input.getRequestContext().getRequestId(), e.getMessage());
@@ -67,6 +74,30 @@ public abstract class ApiGatewayEventHandler<T, R> extends BaseHandler<T, R, API
 
     protected abstract T getRequestData(final APIGatewayProxyRequestEvent input);
 
+    /**
+     * Body of the response to the given request. The hooks building the response take the request as well,
+     * so that whatever the request asks for stays in the request instead of the state of the shared handler.
+     */
+    protected String toJson(final T request, final R result) {
+        return gson.toJson(result);
+    }
+
+    protected Map<String, String> headers(final T request, final R result) {
+        return headers;
+    }
+
+    /**
+     * Status code of a successfully handled request with the given result.
+     */
+    protected int statusCode(final T request, final R result) {
+        return 200;
+    }
+
+    private static String outcome(final int statusCode) {
+        if (statusCode >= 500) return "Error";
+        return statusCode >= 400 ? "ClientError" : "Success";
+    }
+
     private void initUserDataFromIdTokenClaims(final APIGatewayProxyRequestEvent input) {
         final var claims = (Map<String, String>) input.getRequestContext().getAuthorizer().getOrDefault("claims", emptyMap());
         this.email = claims.get("email");
@@ -2,38 +2,98 @@ package org.serverless.template;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.crac.Core;
+import org.crac.Resource;
+import org.serverless.oqu.kerek.http.DynamoDbRateLimiterStore;
+import org.serverless.oqu.kerek.http.InMemoryRateLimiterStore;
+import org.serverless.oqu.kerek.http.OriginClient;
+import org.serverless.oqu.kerek.http.OriginRateLimiter;
 import org.serverless.oqu.kerek.repo.BookMapper;
 import org.serverless.oqu.kerek.repo.BookRepository;
-import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 import software.amazon.awssdk.services.sqs.SqsClient;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getOriginConnectTimeout;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getOriginRateLimiterSettings;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getOriginReadTimeout;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getRateLimiterTableName;
 import static org.serverless.oqu.kerek.util.EnvironmentUtils.getRegion;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.isSnapStartPrimingEnabled;
+import static org.serverless.template.Metrics.INIT_TIME;
+import static org.serverless.template.Metrics.INVOCATIONS;
+import static org.serverless.template.Metrics.PRIMING_TIME;
+import static org.serverless.template.Metrics.metrics;
 
+@Slf4j
 public abstract class BaseHandler<T, R, I, O> implements RequestHandler<I, O> {
 
     protected static SqsClient sqs;
+    protected static SqsAsyncClient sqsAsync;
     protected static S3Client s3Client;
     protected static S3Presigner s3Presigner;
     protected static DynamoDbClient dynamoDbClient;
     protected static BookRepository bookRepository;
+    protected static OriginClient originClient;
+    protected static OriginRateLimiter originRateLimiter;
+
+    private static final RestorableCredentialsProvider credentialsProvider = new RestorableCredentialsProvider();
+    /**
+     * Every AWS client reports the time of its calls and the retries made by the SDK to the metrics.
+     */
+    private static final ClientOverrideConfiguration clientConfiguration = ClientOverrideConfiguration.builder()
+            .addExecutionInterceptor(new MetricsInterceptor())
+            .build();
+    private static final Map<String, Runnable> primingRoutines = new LinkedHashMap<>();
+    /**
+     * The global context keeps only weak references to its resources, so the hooks are held here.
+     */
+    private static final Resource checkpointHooks = new CheckpointHooks();
+
+    static {
+        Core.getGlobalContext().register(checkpointHooks);
+    }
 
-    protected abstract R doHandleRequest(final T input, final Context context);
+    protected abstract R doHandleRequest(final T input, final Context context) throws Exception;
 
     protected void log(Context context, String message, Object... args) {
         context.getLogger().log(String.format(message, args));
     }
 
+    /**
+     * Writes the metrics of the invocation, with the name of the handler and the given outcome as dimensions.
+     */
+    protected void flushMetrics(final String outcome) {
+        metrics().count(INVOCATIONS, 1);
+        metrics().flush(getClass().getSimpleName(), outcome);
+    }
+
+    /**
+     * Registers a warm-up routine to run before the SnapStart checkpoint. Routines are run once in the order
+     * of registration, a routine registered twice under the same name runs only once.
+     */
+    protected static void registerPriming(final String name, final Runnable routine) {
+        synchronized (primingRoutines) {
+            primingRoutines.putIfAbsent(name, routine);
+        }
+    }
+
     protected static void initS3Client() {
         if (s3Client != null) return;
         final var start = System.currentTimeMillis();
         s3Client = S3Client.builder()
                 .region(getRegion())
-                .credentialsProvider(DefaultCredentialsProvider.create())
+                .credentialsProvider(credentialsProvider)
+                .overrideConfiguration(clientConfiguration)
                 .build();
-        System.out.printf("initS3Client took %d milliseconds to complete %n", System.currentTimeMillis() - start);
+        recordInitTime("initS3Client", start);
     }
 
     protected static void initS3Presigner() {
@@ -41,9 +101,9 @@ public abstract class BaseHandler<T, R, I, O> implements RequestHandler<I, O> {
         final var start = System.currentTimeMillis();
         s3Presigner = S3Presigner.builder()
                 .region(getRegion())
-                .credentialsProvider(DefaultCredentialsProvider.create())
+                .credentialsProvider(credentialsProvider)
                 .build();
-        System.out.printf("initS3Presigner took %d milliseconds to complete %n", System.currentTimeMillis() - start);
+        recordInitTime("initS3Presigner", start);
     }
 
     protected static void initSqsClient() {
@@ -51,9 +111,21 @@ public abstract class BaseHandler<T, R, I, O> implements RequestHandler<I, O> {
         final var start = System.currentTimeMillis();
         sqs = SqsClient.builder()
                 .region(getRegion())
-                .credentialsProvider(DefaultCredentialsProvider.create())
+                .credentialsProvider(credentialsProvider)
+                .overrideConfiguration(clientConfiguration)
+                .build();
+        recordInitTime("initSqsClient", start);
+    }
+
+    protected static void initSqsAsyncClient() {
+        if (sqsAsync != null) return;
+        final var start = System.currentTimeMillis();
+        sqsAsync = SqsAsyncClient.builder()
+                .region(getRegion())
+                .credentialsProvider(credentialsProvider)
+                .overrideConfiguration(clientConfiguration)
                 .build();
-        System.out.printf("initSqsClient took %d milliseconds to complete %n", System.currentTimeMillis() - start);
+        recordInitTime("initSqsAsyncClient", start);
     }
 
     private static void initDynamoDbClient() {
@@ -61,9 +133,30 @@ public abstract class BaseHandler<T, R, I, O> implements RequestHandler<I, O> {
         final var start = System.currentTimeMillis();
         dynamoDbClient = DynamoDbClient.builder()
                 .region(getRegion())
-                .credentialsProvider(DefaultCredentialsProvider.create())
+                .credentialsProvider(credentialsProvider)
+                .overrideConfiguration(clientConfiguration)
                 .build();
-        System.out.printf("initS3Client took %d milliseconds to complete %n", System.currentTimeMillis() - start);
+        recordInitTime("initDynamoDbClient", start);
+    }
+
+    protected static void initOriginClient() {
+        if (originClient != null) return;
+        final var start = System.currentTimeMillis();
+        if (originRateLimiter == null) initOriginRateLimiter();
+        originClient = new OriginClient(getOriginConnectTimeout(), getOriginReadTimeout(), originRateLimiter);
+        recordInitTime("initOriginClient", start);
+    }
+
+    protected static void initOriginRateLimiter() {
+        if (originRateLimiter != null) return;
+        final var tableName = getRateLimiterTableName();
+        if (tableName != null && dynamoDbClient == null) initDynamoDbClient();
+        final var start = System.currentTimeMillis();
+        final var store = tableName == null
+                ? new InMemoryRateLimiterStore()
+                : new DynamoDbRateLimiterStore(dynamoDbClient, tableName);
+        originRateLimiter = new OriginRateLimiter(store, "kazneb.kz", getOriginRateLimiterSettings());
+        recordInitTime("initOriginRateLimiter", start);
     }
 
     protected static void initBookRepository() {
@@ -71,6 +164,45 @@ public abstract class BaseHandler<T, R, I, O> implements RequestHandler<I, O> {
         if (dynamoDbClient == null) initDynamoDbClient();
         final var start = System.currentTimeMillis();
         bookRepository = new BookRepository(dynamoDbClient, new BookMapper());
-        System.out.printf("initSqsClient took %d milliseconds to complete %n", System.currentTimeMillis() - start);
+        recordInitTime("initBookRepository", start);
+    }
+
+    private static void recordInitTime(final String name, final long start) {
+        final var millis = System.currentTimeMillis() - start;
+        metrics().time(INIT_TIME, millis);
+        log.info("{} took {} ms", name, millis);
+    }
+
+    private static final class CheckpointHooks implements Resource {
+
+        @Override
+        public void beforeCheckpoint(final org.crac.Context<? extends Resource> context) {
+            if (!isSnapStartPrimingEnabled()) return;
+            final var start = System.currentTimeMillis();
+            synchronized (primingRoutines) {
+                primingRoutines.forEach(CheckpointHooks::prime);
+            }
+            final var millis = System.currentTimeMillis() - start;
+            metrics().time(PRIMING_TIME, millis);
+            log.info("Priming took {} ms", millis);
+        }
+
+        @Override
+        public void afterRestore(final org.crac.Context<? extends Resource> context) {
+            final var start = System.currentTimeMillis();
+            credentialsProvider.refresh();
+            log.info("Refreshing credentials after restore took {} ms", System.currentTimeMillis() - start);
+        }
+
+        private static void prime(final String name, final Runnable routine) {
+            final var start = System.currentTimeMillis();
+            try {
+                routine.run();
+                log.info("Priming {} took {} ms", name, System.currentTimeMillis() - start);
+            } catch (RuntimeException e) {
+                // A failed warm-up only costs its share of the first invocation, so the checkpoint goes on
+                log.warn("Priming {} failed", name, e);
+            }
+        }
     }
 }
@@ -0,0 +1,180 @@
+package org.serverless.template;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.google.gson.Gson;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * Entry point of the native executable of the API handlers, deployed to the {@code provided.al2} runtime.
+ * It takes the next event from the Lambda runtime API, hands it to the handler named by {@code _HANDLER}
+ * and posts the response back, one invocation at a time.
+ */
+public final class CustomRuntime {
+
+    private static final String API_VERSION = "2018-06-01";
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final Gson gson = new Gson();
+    private final String runtimeApi;
+    private final RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> handler;
+
+    public CustomRuntime(final String runtimeApi, final RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> handler) {
+        this.runtimeApi = runtimeApi;
+        this.handler = handler;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final var runtimeApi = System.getenv("AWS_LAMBDA_RUNTIME_API");
+        final CustomRuntime runtime;
+        try {
+            runtime = new CustomRuntime(runtimeApi, createHandler(System.getenv("_HANDLER")));
+        } catch (Exception | LinkageError e) {
+            new CustomRuntime(runtimeApi, null).post("init/error", errorJson(e));
+            throw e;
+        }
+        while (true) {
+            runtime.processNext();
+        }
+    }
+
+    /**
+     * Waits for the next event and handles it. A failure of the handler is reported as the invocation error.
+     */
+    public void processNext() throws IOException, InterruptedException {
+        final var next = httpClient.send(
+                HttpRequest.newBuilder(uri("invocation/next")).GET().build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)
+        );
+        final var requestId = next.headers().firstValue("Lambda-Runtime-Aws-Request-Id")
+                .orElseThrow(() -> new IOException("The runtime API has sent an event without the request ID"));
+        final var deadline = next.headers().firstValue("Lambda-Runtime-Deadline-Ms").map(Long::parseLong).orElse(Long.MAX_VALUE);
+        next.headers().firstValue("Lambda-Runtime-Trace-Id").ifPresent(traceId -> System.setProperty("com.amazonaws.xray.traceHeader", traceId));
+
+        final String result;
+        try {
+            final var event = gson.fromJson(next.body(), APIGatewayProxyRequestEvent.class);
+            result = gson.toJson(handler.handleRequest(event, new RuntimeContext(requestId, deadline)));
+        } catch (RuntimeException e) {
+            post(format("invocation/%s/error", requestId), errorJson(e));
+            return;
+        }
+        post(format("invocation/%s/response", requestId), result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> createHandler(final String handler) throws ReflectiveOperationException {
+        final var className = handler.contains("::") ? handler.substring(0, handler.indexOf("::")) : handler;
+        return (RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent>) Class.forName(className)
+                .getDeclaredConstructor()
+                .newInstance();
+    }
+
+    private void post(final String path, final String body) throws IOException, InterruptedException {
+        httpClient.send(
+                HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8)).build(),
+                HttpResponse.BodyHandlers.discarding()
+        );
+    }
+
+    private URI uri(final String path) {
+        return URI.create(format("http://%s/%s/runtime/%s", runtimeApi, API_VERSION, path));
+    }
+
+    private static String errorJson(final Throwable e) {
+        return new Gson().toJson(Map.of(
+                "errorType", e.getClass().getName(),
+                "errorMessage", String.valueOf(e.getMessage())
+        ));
+    }
+
+    @RequiredArgsConstructor
+    private static final class RuntimeContext implements Context {
+
+        private static final LambdaLogger LOGGER = new LambdaLogger() {
+            @Override
+            public void log(final String message) {
+                System.out.println(message);
+            }
+
+            @Override
+            public void log(final byte[] message) {
+                System.out.println(new String(message, StandardCharsets.UTF_8));
+            }
+        };
+
+        private final String requestId;
+        private final long deadline;
+
+        @Override
+        public String getAwsRequestId() {
+            return requestId;
+        }
+
+        @Override
+        public String getLogGroupName() {
+            return System.getenv("AWS_LAMBDA_LOG_GROUP_NAME");
+        }
+
+        @Override
+        public String getLogStreamName() {
+            return System.getenv("AWS_LAMBDA_LOG_STREAM_NAME");
+        }
+
+        @Override
+        public String getFunctionName() {
+            return System.getenv("AWS_LAMBDA_FUNCTION_NAME");
+        }
+
+        @Override
+        public String getFunctionVersion() {
+            return System.getenv("AWS_LAMBDA_FUNCTION_VERSION");
+        }
+
+        @Override
+        public String getInvokedFunctionArn() {
+            return null;
+        }
+
+        @Override
+        public CognitoIdentity getIdentity() {
+            return null;
+        }
+
+        @Override
+        public ClientContext getClientContext() {
+            return null;
+        }
+
+        @Override
+        public int getRemainingTimeInMillis() {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, deadline - System.currentTimeMillis()));
+        }
+
+        @Override
+        public int getMemoryLimitInMB() {
+            final var memory = System.getenv("AWS_LAMBDA_FUNCTION_MEMORY_SIZE");
+            return memory == null ? 0 : Integer.parseInt(memory);
+        }
+
+        @Override
+        public LambdaLogger getLogger() {
+            return LOGGER;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package org.serverless.template;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getMetricsNamespace;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.isMetricsEnabled;
+
+/**
+ * Collects timers and counters of an invocation and writes them as CloudWatch Embedded Metric Format records,
+ * which CloudWatch turns into metrics right from the function log, with the handler and the outcome as dimensions.
+ * Recording is a map lookup and an addition, and an invocation is written as a single line unless a timer has more
+ * samples than a record may hold, so it stays on in production.
+ */
+public final class Metrics {
+
+    public static final String INVOCATIONS = "Invocations";
+    public static final String FAILED_MESSAGES = "FailedMessages";
+    public static final String ORIGIN_FETCH_TIME = "OriginFetchTime";
+    public static final String ORIGIN_RETRIES = "OriginRetries";
+    public static final String S3_GET_TIME = "S3GetTime";
+    public static final String S3_PUT_TIME = "S3PutTime";
+    public static final String S3_GET_BYTES = "S3GetBytes";
+    public static final String S3_PUT_BYTES = "S3PutBytes";
+    public static final String AWS_RETRIES = "AwsRetries";
+    public static final String BATCH_RETRIES = "BatchRetries";
+    public static final String PAGES_LOADED = "PagesLoaded";
+    public static final String PAGES_RENDERED = "PagesRendered";
+    public static final String PDF_PAGE_RENDER_TIME = "PdfPageRenderTime";
+    /**
+     * Initialization of the clients and the priming are recorded once per execution environment,
+     * so they are written with its first invocation.
+     */
+    public static final String INIT_TIME = "InitTime";
+    public static final String PRIMING_TIME = "PrimingTime";
+
+    /**
+     * The most values a metric may have in one record.
+     */
+    static final int MAX_VALUES_PER_RECORD = 100;
+
+    private static final Metrics GLOBAL = new Metrics(getMetricsNamespace(), System.out::println, System::currentTimeMillis, isMetricsEnabled());
+
+    private final Map<String, Samples> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final String namespace;
+    private final Consumer<String> sink;
+    private final LongSupplier clock;
+    private final boolean enabled;
+
+    public Metrics(final String namespace, final Consumer<String> sink, final LongSupplier clock, final boolean enabled) {
+        this.namespace = namespace;
+        this.sink = sink;
+        this.clock = clock;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Metrics of the execution environment, written by the handler at the end of every invocation.
+     */
+    public static Metrics metrics() {
+        return GLOBAL;
+    }
+
+    public void time(final String name, final long millis) {
+        if (enabled) timers.computeIfAbsent(name, ignored -> new Samples()).add(millis);
+    }
+
+    public void count(final String name, final long value) {
+        count(name, Unit.COUNT, value);
+    }
+
+    public void countBytes(final String name, final long bytes) {
+        count(name, Unit.BYTES, bytes);
+    }
+
+    /**
+     * Writes everything recorded since the previous flush. Values recorded concurrently with the flush may be left out.
+     */
+    public void flush(final String handler, final String outcome) {
+        if (!enabled) return;
+        final var timerValues = new LinkedHashMap<String, long[]>();
+        for (final var name : timers.keySet()) {
+            final var samples = timers.remove(name);
+            if (samples != null) timerValues.put(name, samples.values());
+        }
+        final var counterValues = new LinkedHashMap<String, Counter>();
+        for (final var name : counters.keySet()) {
+            final var counter = counters.remove(name);
+            if (counter != null) counterValues.put(name, counter);
+        }
+        if (timerValues.isEmpty() && counterValues.isEmpty()) return;
+
+        final var records = Math.max(1, timerValues.values().stream()
+                .mapToInt(values -> (values.length + MAX_VALUES_PER_RECORD - 1) / MAX_VALUES_PER_RECORD)
+                .max()
+                .orElse(1));
+        for (int i = 0; i < records; i++) {
+            sink.accept(record(handler, outcome, timerValues, i == 0 ? counterValues : Map.of(), i));
+        }
+    }
+
+    private void count(final String name, final Unit unit, final long value) {
+        if (enabled) counters.computeIfAbsent(name, ignored -> new Counter(unit)).value.add(value);
+    }
+
+    private String record(final String handler, final String outcome, final Map<String, long[]> timerValues,
+                          final Map<String, Counter> counterValues, final int index) {
+        final var definitions = new StringBuilder(256);
+        final var values = new StringBuilder(256);
+        timerValues.forEach((name, samples) -> {
+            final var from = index * MAX_VALUES_PER_RECORD;
+            if (from >= samples.length) return;
+            appendDefinition(definitions, name, Unit.MILLISECONDS);
+            values.append(',');
+            appendString(values, name).append(":[");
+            for (int i = from; i < Math.min(samples.length, from + MAX_VALUES_PER_RECORD); i++) {
+                if (i > from) values.append(',');
+                values.append(samples[i]);
+            }
+            values.append(']');
+        });
+        counterValues.forEach((name, counter) -> {
+            appendDefinition(definitions, name, counter.unit);
+            values.append(',');
+            appendString(values, name).append(':').append(counter.value.sum());
+        });
+
+        final var record = new StringBuilder(definitions.length() + values.length() + 256)
+                .append("{\"_aws\":{\"Timestamp\":").append(clock.getAsLong())
+                .append(",\"CloudWatchMetrics\":[{\"Namespace\":");
+        appendString(record, namespace)
+                .append(",\"Dimensions\":[[\"Handler\",\"Outcome\"]],\"Metrics\":[")
+                .append(definitions)
+                .append("]}]},\"Handler\":");
+        appendString(record, handler).append(",\"Outcome\":");
+        return appendString(record, outcome)
+                .append(values)
+                .append('}')
+                .toString();
+    }
+
+    private static void appendDefinition(final StringBuilder definitions, final String name, final Unit unit) {
+        if (definitions.length() > 0) definitions.append(',');
+        definitions.append("{\"Name\":");
+        appendString(definitions, name).append(",\"Unit\":\"").append(unit.unitName).append("\"}");
+    }
+
+    private static StringBuilder appendString(final StringBuilder builder, final String value) {
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final var c = value.charAt(i);
+            if (c == '"' || c == '\\') builder.append('\\');
+            if (c >= ' ') builder.append(c);
+        }
+        return builder.append('"');
+    }
+
+    private enum Unit {
+        MILLISECONDS("Milliseconds"),
+        COUNT("Count"),
+        BYTES("Bytes");
+
+        private final String unitName;
+
+        Unit(final String unitName) {
+            this.unitName = unitName;
+        }
+    }
+
+    private static final class Counter {
+        private final Unit unit;
+        private final LongAdder value = new LongAdder();
+
+        private Counter(final Unit unit) {
+            this.unit = unit;
+        }
+    }
+
+    private static final class Samples {
+        private long[] values = new long[8];
+        private int size;
+
+        synchronized void add(final long value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        synchronized long[] values() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
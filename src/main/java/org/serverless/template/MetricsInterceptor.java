@@ -0,0 +1,71 @@
+package org.serverless.template;
+
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+
+import static org.serverless.template.Metrics.AWS_RETRIES;
+import static org.serverless.template.Metrics.S3_GET_TIME;
+import static org.serverless.template.Metrics.S3_PUT_TIME;
+import static org.serverless.template.Metrics.metrics;
+
+/**
+ * Times every call of the AWS clients, retries included, and counts the retries made by the SDK.
+ * S3 reads and writes are timed apart, other calls are timed per service, e.g. {@code DynamoDbTime}.
+ */
+class MetricsInterceptor implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Long> START = new ExecutionAttribute<>("MetricsStart");
+    private static final ExecutionAttribute<Integer> ATTEMPTS = new ExecutionAttribute<>("MetricsAttempts");
+
+    @Override
+    public void beforeExecution(final Context.BeforeExecution context, final ExecutionAttributes attributes) {
+        attributes.putAttribute(START, System.currentTimeMillis());
+        attributes.putAttribute(ATTEMPTS, 0);
+    }
+
+    @Override
+    public void beforeTransmission(final Context.BeforeTransmission context, final ExecutionAttributes attributes) {
+        attributes.putAttribute(ATTEMPTS, attributes.getAttribute(ATTEMPTS) + 1);
+    }
+
+    @Override
+    public void afterExecution(final Context.AfterExecution context, final ExecutionAttributes attributes) {
+        record(attributes);
+    }
+
+    @Override
+    public void onExecutionFailure(final Context.FailedExecution context, final ExecutionAttributes attributes) {
+        record(attributes);
+    }
+
+    private static void record(final ExecutionAttributes attributes) {
+        final var start = attributes.getAttribute(START);
+        if (start == null) return;
+        metrics().time(
+                metricName(attributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME), attributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME)),
+                System.currentTimeMillis() - start
+        );
+        final var attempts = attributes.getAttribute(ATTEMPTS);
+        if (attempts != null && attempts > 1) metrics().count(AWS_RETRIES, attempts - 1);
+    }
+
+    static String metricName(final String service, final String operation) {
+        if ("S3".equals(service)) {
+            switch (operation) {
+                case "GetObject":
+                    return S3_GET_TIME;
+                case "PutObject":
+                case "UploadPart":
+                case "CreateMultipartUpload":
+                case "CompleteMultipartUpload":
+                    return S3_PUT_TIME;
+                default:
+                    return "S3Time";
+            }
+        }
+        return service + "Time";
+    }
+}
@@ -0,0 +1,26 @@
+package org.serverless.template;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+
+/**
+ * Credentials provider shared by the clients, which can drop whatever it has resolved and cached so far.
+ * Credentials cached before a SnapStart checkpoint may have expired by the time the snapshot is restored,
+ * so the provider is refreshed after every restore instead of rebuilding the clients which use it.
+ */
+class RestorableCredentialsProvider implements AwsCredentialsProvider {
+
+    private volatile DefaultCredentialsProvider delegate = DefaultCredentialsProvider.builder().build();
+
+    @Override
+    public AwsCredentials resolveCredentials() {
+        return delegate.resolveCredentials();
+    }
+
+    void refresh() {
+        final var previous = delegate;
+        delegate = DefaultCredentialsProvider.builder().build();
+        previous.close();
+    }
+}
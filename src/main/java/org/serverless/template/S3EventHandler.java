@@ -4,6 +4,10 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.S3Event;
 import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification;
 
+/**
+ * Processes records of an S3 event one after another. A record that fails fails the whole invocation,
+ * so that Lambda retries the asynchronous event.
+ */
 public abstract class S3EventHandler extends BaseHandler<S3EventNotification.S3EventNotificationRecord, Void, S3Event, Void>{
 
     @Override
@@ -18,7 +22,11 @@ public abstract class S3EventHandler extends BaseHandler<S3EventNotification.S3E
             log(context, "Completed processing S3 event of size %d", input.getRecords().size());
         } catch (Exception e) {
             log(context, "Error occurred while processing S3 event of size %d: %s", input.getRecords().size(), e.getMessage());
+            flushMetrics("Error");
+            if (e instanceof RuntimeException) throw (RuntimeException) e;
+            throw new IllegalStateException("Error occurred while processing S3 event", e);
         }
+        flushMetrics("Success");
         return null;
     }
 }
@@ -1,27 +1,115 @@
 package org.serverless.template;
 
 import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
 import com.amazonaws.services.lambda.runtime.events.SQSEvent;
 
-public abstract class SqsEventHandler extends BaseHandler<SQSEvent.SQSMessage, Void, SQSEvent, Void>{
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.stream.Collectors.toList;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getSqsBatchConcurrency;
+import static org.serverless.template.Metrics.FAILED_MESSAGES;
+import static org.serverless.template.Metrics.metrics;
+
+/**
+ * Processes records of an SQS batch concurrently and reports the records which failed,
+ * so that only those are redelivered (the event source mapping has to enable {@code ReportBatchItemFailures}).
+ */
+public abstract class SqsEventHandler extends BaseHandler<SQSEvent.SQSMessage, Void, SQSEvent, SQSBatchResponse> {
+
+    private static final ExecutorService executor = newFixedThreadPool(getSqsBatchConcurrency(), runnable -> {
+        final var thread = new Thread(runnable, "sqs-batch-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @Override
-    public Void handleRequest(final SQSEvent input, final Context context) {
-        try {
-            log(context, "Starting processing SQS event of size %d", input.getRecords().size());
+    public SQSBatchResponse handleRequest(final SQSEvent input, final Context context) {
+        final var records = input.getRecords();
+        log(context, "Starting processing SQS event of size %d", records.size());
 
-            for (SQSEvent.SQSMessage message : input.getRecords()) {
-                doHandleRequest(message, context);
-            }
+        final var failedMessageIds = isOrderedByMessageGroup()
+                ? processByMessageGroup(records, context)
+                : processConcurrently(records, context);
 
-            log(context, "Completed processing SQS event of size %d", input.getRecords().size());
-        } catch (Exception e) {
-            log(context, "Error occurred while processing SQS event of size %d: %s", input.getRecords().size(), e.getMessage());
-        }
-        return null;
+        log(context, "Completed processing SQS event of size %d, %d messages failed", records.size(), failedMessageIds.size());
+        metrics().count(FAILED_MESSAGES, failedMessageIds.size());
+        flushMetrics(failedMessageIds.isEmpty() ? "Success" : failedMessageIds.size() < records.size() ? "PartialFailure" : "Error");
+        return new SQSBatchResponse(failedMessageIds.stream()
+                .map(SQSBatchResponse.BatchItemFailure::new)
+                .collect(toList())
+        );
+    }
+
+    /**
+     * Handlers of FIFO queues return {@code true} to process the messages of the same group one after another.
+     * Once a message of a group fails, the rest of the group is not processed and is reported as failed as well.
+     */
+    protected boolean isOrderedByMessageGroup() {
+        return false;
     }
 
     protected String getMessageAttributeOrDefault(final SQSEvent.SQSMessage input, final String attribute, final String defaultValue) {
         return input.getMessageAttributes().containsKey(attribute) ? input.getMessageAttributes().get(attribute).getStringValue() : defaultValue;
     }
+
+    private List<String> processConcurrently(final List<SQSEvent.SQSMessage> records, final Context context) {
+        final var tasks = new ArrayList<Future<List<String>>>(records.size());
+        for (final var message : records) {
+            tasks.add(executor.submit(() -> process(message, context) ? List.<String>of() : List.of(message.getMessageId())));
+        }
+        return collectFailures(tasks, records);
+    }
+
+    private List<String> processByMessageGroup(final List<SQSEvent.SQSMessage> records, final Context context) {
+        final var groups = new LinkedHashMap<String, List<SQSEvent.SQSMessage>>();
+        for (final var message : records) {
+            final var groupId = message.getAttributes().getOrDefault("MessageGroupId", message.getMessageId());
+            groups.computeIfAbsent(groupId, id -> new ArrayList<>()).add(message);
+        }
+
+        final var tasks = new ArrayList<Future<List<String>>>(groups.size());
+        for (final var group : groups.values()) {
+            tasks.add(executor.submit(() -> {
+                for (int i = 0; i < group.size(); i++) {
+                    if (!process(group.get(i), context)) {
+                        return group.subList(i, group.size()).stream().map(SQSEvent.SQSMessage::getMessageId).collect(toList());
+                    }
+                }
+                return List.<String>of();
+            }));
+        }
+        return collectFailures(tasks, records);
+    }
+
+    private boolean process(final SQSEvent.SQSMessage message, final Context context) {
+        try {
+            doHandleRequest(message, context);
+            return true;
+        } catch (Exception e) {
+            log(context, "Error occurred while processing SQS message (ID = %s): %s", message.getMessageId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private List<String> collectFailures(final List<Future<List<String>>> tasks, final List<SQSEvent.SQSMessage> records) {
+        final var failedMessageIds = new ArrayList<String>();
+        try {
+            for (final var task : tasks) {
+                failedMessageIds.addAll(task.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return records.stream().map(SQSEvent.SQSMessage::getMessageId).collect(toList());
+        } catch (ExecutionException e) {
+            return records.stream().map(SQSEvent.SQSMessage::getMessageId).collect(toList());
+        }
+        return failedMessageIds;
+    }
 }
@@ -0,0 +1,66 @@
+package org.serverless.oqu.kerek;
+
+import org.junit.jupiter.api.Test;
+import org.serverless.oqu.kerek.model.BookInfo;
+import org.serverless.oqu.kerek.repo.BookBatchReader;
+import org.serverless.oqu.kerek.repo.BookMapper;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.serverless.oqu.kerek.repo.BookMapper.BOOK_ID;
+import static org.serverless.oqu.kerek.repo.BookMapper.USER_EMAIL;
+
+class BookBatchReaderTest {
+
+    private final BookMapper mapper = new BookMapper();
+    private final InMemoryDynamoDbClient dynamoDb = new InMemoryDynamoDbClient(BOOK_ID, USER_EMAIL);
+    private final BookBatchReader reader = new BookBatchReader(dynamoDb.client(), mapper, 4, 5);
+
+    @Test
+    void shouldReadBooksInOrderOfIds() {
+        saveBooks(250);
+        final var bookIds = IntStream.range(0, 300).mapToObj(String::valueOf).collect(toList());
+        Collections.shuffle(bookIds, new Random(42));
+
+        final var books = reader.read("books", bookIds);
+
+        final var expected = bookIds.stream().filter(id -> Integer.parseInt(id) < 250).collect(toList());
+        assertEquals(expected, books.stream().map(BookInfo::getId).collect(toList()));
+        assertEquals(3, dynamoDb.requests("batchGetItem"));
+    }
+
+    @Test
+    void shouldRetryUnprocessedKeys() {
+        saveBooks(150);
+        dynamoDb.unprocessedReads.set(30);
+
+        final var books = reader.read("books", IntStream.range(0, 150).mapToObj(String::valueOf).collect(toList()));
+
+        assertEquals(150, books.size());
+        assertEquals("Title 7", books.get(7).getTitle());
+    }
+
+    @Test
+    void shouldReadDuplicateIdsOnce() {
+        saveBooks(2);
+
+        final var books = reader.read("books", List.of("1", "0", "1"));
+
+        assertEquals(List.of("1", "0"), books.stream().map(BookInfo::getId).collect(toList()));
+        assertEquals(1, dynamoDb.requests("batchGetItem"));
+    }
+
+    private void saveBooks(final int count) {
+        final var client = dynamoDb.client();
+        for (int i = 0; i < count; i++) {
+            final var book = BookInfo.builder().id(String.valueOf(i)).title("Title " + i).build();
+            client.putItem(PutItemRequest.builder().tableName("books").item(mapper.mapToBookItem(book)).build());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.serverless.oqu.kerek;
+
+import org.junit.jupiter.api.Test;
+import org.serverless.oqu.kerek.model.BookInfo;
+import org.serverless.oqu.kerek.model.BookRequestContext;
+import org.serverless.oqu.kerek.repo.BookMapper;
+
+import java.time.OffsetDateTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.serverless.oqu.kerek.repo.BookMapper.*;
+
+class BookMapperTest {
+
+    private final BookMapper mapper = new BookMapper();
+
+    @Test
+    void shouldMapBookToItemAndBack() {
+        final var book = BookInfo.builder()
+                .id("1628186")
+                .title("Айқап")
+                .author("Сералин М.")
+                .imageUrl("https://kazneb.kz/cover.png")
+                .status("Ready")
+                .build();
+
+        final var item = mapper.mapToBookItem(book);
+        final var mapped = mapper.mapToBook(item);
+
+        assertEquals("1628186", item.get(USER_EMAIL).s());
+        assertEquals("1628186", mapped.getId());
+        assertEquals("Айқап", mapped.getTitle());
+        assertEquals("Сералин М.", mapped.getAuthor());
+        assertEquals("https://kazneb.kz/cover.png", mapped.getImageUrl());
+        assertEquals("Ready", mapped.getStatus());
+    }
+
+    @Test
+    void shouldSkipBlankAttributesAndDefaultStatus() {
+        final var item = mapper.mapToBookItem(BookInfo.builder().id("82809").title(" ").build());
+
+        assertEquals(Set.of(BOOK_ID, USER_EMAIL, STATUS), item.keySet());
+        assertEquals("InProgress", item.get(STATUS).s());
+        assertNull(mapper.mapToBook(item).getTitle());
+    }
+
+    @Test
+    void shouldMapRequestToUserItem() {
+        final var item = mapper.mapToUserItem(BookRequestContext.builder()
+                .bookId("82809")
+                .userEmail("reader@oqukerek.de")
+                .requestedAt(OffsetDateTime.parse("2023-07-01T10:00:00Z"))
+                .build());
+
+        assertEquals("82809", item.get(BOOK_ID).s());
+        assertEquals("reader@oqukerek.de", item.get(USER_EMAIL).s());
+        assertEquals("2023-07-01T10:00:00Z", item.get(REQUESTED_AT).s());
+    }
+}
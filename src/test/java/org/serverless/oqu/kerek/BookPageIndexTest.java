@@ -0,0 +1,52 @@
+package org.serverless.oqu.kerek;
+
+import org.junit.jupiter.api.Test;
+import org.serverless.oqu.kerek.storage.BookPageIndex;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookPageIndexTest {
+
+    private final InMemoryS3Client s3 = new InMemoryS3Client();
+    private final BookPageIndex index = new BookPageIndex(s3.client(), "bucket", "123");
+
+    @Test
+    void shouldListAllPagesInNumericOrder() {
+        IntStream.rangeClosed(1, 2_500).forEach(i -> s3.objects.put("123/" + i + ".png", new byte[1]));
+        s3.objects.put("123/last.png", new byte[1]);
+        s3.objects.put("123/segments/00000.part", new byte[1]);
+        s3.objects.put("1234/1.png", new byte[1]);
+
+        final var keys = index.sortedPages().stream().map(S3Object::key).collect(toList());
+
+        assertEquals(2_501, keys.size());
+        assertEquals(List.of("123/1.png", "123/2.png", "123/3.png"), keys.subList(0, 3));
+        assertEquals(List.of("123/2499.png", "123/2500.png", "123/last.png"), keys.subList(2_498, 2_501));
+        assertEquals(3, s3.listRequests.get());
+    }
+
+    @Test
+    void shouldFindBookPdfWithSingleRequest() {
+        IntStream.rangeClosed(1, 5_000).forEach(i -> s3.objects.put("123/" + i + ".png", new byte[1]));
+        assertFalse(index.hasPdf());
+
+        s3.objects.put("123/book.pdf", new byte[1]);
+        assertTrue(index.hasPdf());
+        assertEquals(2, s3.headRequests.get());
+        assertEquals(0, s3.listRequests.get());
+    }
+
+    @Test
+    void shouldOrderPageKeysNaturally() {
+        final var keys = List.of("b/last.png", "b/10.png", "b/page_10.png", "b/002.png", "b/page_9.png", "b/1.png");
+
+        final var sorted = keys.stream().sorted(BookPageIndex.PAGE_ORDER).collect(toList());
+
+        assertEquals(List.of("b/1.png", "b/002.png", "b/10.png", "b/page_9.png", "b/page_10.png", "b/last.png"), sorted);
+    }
+}
@@ -0,0 +1,100 @@
+package org.serverless.oqu.kerek;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.serverless.oqu.kerek.storage.BookPagesPrefetcher;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookPagesPrefetcherTest {
+
+    @Test
+    void shouldReturnPagesInOrder() {
+        final var objects = pages(100, 10);
+        final var actual = new ArrayList<String>();
+
+        try (final var prefetcher = new BookPagesPrefetcher(objects, this::readWithRandomDelay, 8, 1_000)) {
+            prefetcher.forEachRemaining(bytes -> actual.add(new String(bytes)));
+        }
+
+        assertEquals(objects.stream().map(S3Object::key).collect(toList()), actual);
+    }
+
+    @Test
+    void shouldNotExceedMaxBytesInFlight() {
+        final var objects = pages(50, 100);
+        final var inFlight = new AtomicInteger();
+        final var maxObserved = new AtomicInteger();
+
+        try (final var prefetcher = new BookPagesPrefetcher(objects, key -> {
+            maxObserved.accumulateAndGet(inFlight.addAndGet(100), Math::max);
+            return readWithRandomDelay(key);
+        }, 16, 300)) {
+            while (prefetcher.hasNext()) {
+                prefetcher.next();
+                inFlight.addAndGet(-100);
+            }
+        }
+
+        assertTrue(maxObserved.get() <= 300, "Observed " + maxObserved.get() + " bytes in flight");
+    }
+
+    @Test
+    @Timeout(5)
+    void shouldFetchPageLargerThanLimit() {
+        try (final var prefetcher = new BookPagesPrefetcher(pages(3, 1_000), String::getBytes, 4, 10)) {
+            assertEquals(3, IntStream.range(0, 3).mapToObj(i -> prefetcher.next()).count());
+            assertFalse(prefetcher.hasNext());
+        }
+    }
+
+    /**
+     * The page held by the consumer takes more than half of the limit, so the next page fits only once it is released.
+     */
+    @Test
+    @Timeout(5)
+    void shouldFetchNextPageWhenConsumedPageHoldsMostOfLimit() {
+        final var objects = pages(5, 600);
+        for (final var concurrency : new int[]{1, 4}) {
+            final var actual = new ArrayList<String>();
+            try (final var prefetcher = new BookPagesPrefetcher(objects, this::readWithRandomDelay, concurrency, 1_000)) {
+                prefetcher.forEachRemaining(bytes -> actual.add(new String(bytes)));
+            }
+            assertEquals(objects.stream().map(S3Object::key).collect(toList()), actual);
+        }
+    }
+
+    @Test
+    void shouldPropagateReadFailure() {
+        try (final var prefetcher = new BookPagesPrefetcher(pages(3, 10), key -> {
+            throw new IOException("Unable to read " + key);
+        }, 2, 100)) {
+            assertThrows(UncheckedIOException.class, prefetcher::next);
+        }
+    }
+
+    private byte[] readWithRandomDelay(final String key) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return key.getBytes();
+    }
+
+    private List<S3Object> pages(final int count, final long size) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> S3Object.builder().key("book/" + i + ".png").size(size).build())
+                .collect(toList());
+    }
+}
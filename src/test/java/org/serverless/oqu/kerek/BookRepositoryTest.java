@@ -0,0 +1,287 @@
+package org.serverless.oqu.kerek;
+
+import org.junit.jupiter.api.Test;
+import org.serverless.oqu.kerek.model.BookInfo;
+import org.serverless.oqu.kerek.model.BookRequestContext;
+import org.serverless.oqu.kerek.repo.BookMapper;
+import org.serverless.oqu.kerek.repo.BookRepository;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.serverless.oqu.kerek.repo.BookMapper.BOOK_ID;
+import static org.serverless.oqu.kerek.repo.BookMapper.ENQUEUED_AT;
+import static org.serverless.oqu.kerek.repo.BookMapper.REQUESTED_AT;
+import static org.serverless.oqu.kerek.repo.BookMapper.USER_EMAIL;
+
+class BookRepositoryTest {
+
+    private final InMemoryDynamoDbClient dynamoDb = new InMemoryDynamoDbClient(BOOK_ID, USER_EMAIL);
+    private final BookRepository repository = new BookRepository(dynamoDb.client(), new BookMapper());
+
+    @Test
+    void shouldRegisterNewBookOnceForParallelRequests() throws Exception {
+        final var requests = 16;
+        final var executor = Executors.newFixedThreadPool(requests);
+        final var start = new CountDownLatch(1);
+        final var results = new ArrayList<Future<Boolean>>();
+        try {
+            for (int i = 0; i < requests; i++) {
+                final var userEmail = "reader" + i + "@oqukerek.de";
+                results.add(executor.submit((Callable<Boolean>) () -> {
+                    start.await();
+                    return repository.registerNewBook(book("1628186"), request("1628186", userEmail));
+                }));
+            }
+            start.countDown();
+
+            var pipelineRuns = 0;
+            for (final var result : results) {
+                if (result.get()) pipelineRuns++;
+            }
+            assertEquals(1, pipelineRuns);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("InProgress", dynamoDb.item("1628186", "1628186").get("Status").s());
+        for (int i = 0; i < requests; i++) {
+            assertNotNull(dynamoDb.item("1628186", "reader" + i + "@oqukerek.de"));
+        }
+    }
+
+    @Test
+    void shouldRecordRequestForAlreadyRegisteredBook() {
+        assertTrue(repository.registerNewBook(book("82809"), request("82809", "first@oqukerek.de")));
+        assertFalse(repository.registerNewBook(book("82809"), request("82809", "second@oqukerek.de")));
+
+        assertNotNull(dynamoDb.item("82809", "first@oqukerek.de"));
+        assertNotNull(dynamoDb.item("82809", "second@oqukerek.de"));
+    }
+
+    @Test
+    void shouldFillInInfoOfPendingBook() {
+        repository.registerNewBook(BookInfo.pending("82809"), request("82809", "reader@oqukerek.de"));
+
+        repository.updateBookInfo(book("82809"));
+
+        final var item = dynamoDb.item("82809", "82809");
+        assertEquals("Айқап", item.get("Title").s());
+        assertEquals("InProgress", item.get("Status").s());
+    }
+
+    @Test
+    void shouldSaveRequestsInBatchesRetryingUnprocessedItems() {
+        final var requests = IntStream.range(0, 60)
+                .mapToObj(i -> request(String.valueOf(i), "reader@oqukerek.de"))
+                .collect(toList());
+        dynamoDb.unprocessedWrites.set(10);
+
+        repository.saveNewRequests(requests);
+
+        for (int i = 0; i < 60; i++) {
+            assertNotNull(dynamoDb.item(String.valueOf(i), "reader@oqukerek.de"));
+        }
+        assertEquals(4, dynamoDb.requests("batchWriteItem"));
+    }
+
+    @Test
+    void shouldPageThroughDistinctBooksOfUser() {
+        final var requestedAt = OffsetDateTime.parse("2023-07-01T10:00:00Z");
+        // A repeated request of a book replaces the previous one
+        final var bookIds = List.of("1", "2", "3", "2", "4", "5", "6", "7", "8");
+        for (int i = 0; i < bookIds.size(); i++) {
+            repository.saveNewRequest(BookRequestContext.builder()
+                    .bookId(bookIds.get(i))
+                    .userEmail("reader@oqukerek.de")
+                    .requestedAt(requestedAt.plusMinutes(i))
+                    .build());
+        }
+        repository.saveNewRequest(request("9", "another@oqukerek.de"));
+
+        final var first = repository.findBookIdsByUserEmail("reader@oqukerek.de", 3, null);
+        assertEquals(List.of("8", "7", "6"), first.getBookIds());
+        assertNotNull(first.getCursor());
+
+        final var second = repository.findBookIdsByUserEmail("reader@oqukerek.de", 3, first.getCursor());
+        assertEquals(List.of("5", "4", "2"), second.getBookIds());
+
+        final var last = repository.findBookIdsByUserEmail("reader@oqukerek.de", 3, second.getCursor());
+        assertEquals(List.of("3", "1"), last.getBookIds());
+        assertNull(last.getCursor());
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> repository.findBookIdsByUserEmail("reader@oqukerek.de", 3, "not a cursor"));
+    }
+
+    @Test
+    void shouldRegisterOnlyNewBooksConcurrently() {
+        repository.registerBook(book("82809"));
+        final var books = IntStream.range(0, 20)
+                .mapToObj(i -> BookInfo.pending(String.valueOf(82800 + i)))
+                .collect(toList());
+
+        final var registered = repository.registerBooks(books);
+
+        assertEquals(19, registered.size());
+        assertFalse(registered.contains("82809"));
+        assertEquals("InProgress", dynamoDb.item("82809", "82809").get("Status").s());
+        assertEquals("Pending", dynamoDb.item("82819", "82819").get("Status").s());
+    }
+
+    @Test
+    void shouldChangeVersionOfStatusOnUpdates() {
+        repository.registerNewBook(BookInfo.pending("82809"), request("82809", "reader@oqukerek.de"));
+        final var registered = repository.findBookStatus("82809").orElseThrow();
+
+        repository.updateBookInfo(book("82809"));
+        repository.updateBookStatus("82809", "Ready");
+        final var ready = repository.findBookStatus("82809").orElseThrow();
+
+        assertEquals("Pending", registered.getStatus());
+        assertEquals(1, registered.getVersion());
+        assertEquals("Ready", ready.getStatus());
+        assertEquals(3, ready.getVersion());
+        assertNull(ready.getExpectedPages());
+        assertTrue(repository.findBookStatus("1628186").isEmpty());
+    }
+
+    @Test
+    void shouldCountRedeliveredPageOnce() {
+        repository.registerBook(book("82809"));
+        final var attempt = repository.startPagesLoading("82809", 3);
+
+        assertFalse(repository.registerLoadedPage("82809", attempt, "82809/1.png"));
+        assertFalse(repository.registerLoadedPage("82809", attempt, "82809/1.png"));
+        assertFalse(repository.registerLoadedPage("82809", attempt, "82809/2.png"));
+
+        assertEquals(2, repository.findBookStatus("82809").orElseThrow().getLoadedPages());
+    }
+
+    @Test
+    void shouldRejectPagesOfSupersededAttempt() {
+        repository.registerBook(book("82809"));
+        final var first = repository.startPagesLoading("82809", 2);
+        repository.registerLoadedPage("82809", first, "82809/1.png");
+        assertTrue(repository.registerLoadedPage("82809", first, "82809/2.png"));
+
+        final var second = repository.startPagesLoading("82809", 2);
+        assertNotEquals(first, second);
+        assertEquals(0, repository.findBookStatus("82809").orElseThrow().getLoadedPages());
+
+        assertFalse(repository.registerLoadedPage("82809", first, "82809/1.png"));
+        assertFalse(repository.registerLoadedPage("82809", first, "82809/2.png"));
+        assertEquals(0, repository.findBookStatus("82809").orElseThrow().getLoadedPages());
+
+        assertFalse(repository.registerLoadedPage("82809", second, "82809/1.png"));
+        assertTrue(repository.registerLoadedPage("82809", second, "82809/2.png"));
+    }
+
+    @Test
+    void shouldTriggerAssemblyOnlyOnLastPage() throws Exception {
+        repository.registerBook(book("1628186"));
+        final var pages = 20;
+        final var attempt = repository.startPagesLoading("1628186", pages);
+        final var executor = Executors.newFixedThreadPool(8);
+        final var start = new CountDownLatch(1);
+        final var results = new ArrayList<Future<Boolean>>();
+        try {
+            // Every page is delivered twice
+            for (int i = 0; i < 2 * pages; i++) {
+                final var pageKey = "1628186/" + (i % pages + 1) + ".png";
+                results.add(executor.submit((Callable<Boolean>) () -> {
+                    start.await();
+                    return repository.registerLoadedPage("1628186", attempt, pageKey);
+                }));
+            }
+            start.countDown();
+
+            var triggers = 0;
+            for (final var result : results) {
+                if (result.get()) triggers++;
+            }
+            assertEquals(1, triggers);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(pages, repository.findBookStatus("1628186").orElseThrow().getLoadedPages());
+        assertFalse(repository.registerLoadedPage("1628186", attempt, "1628186/20.png"));
+    }
+
+    @Test
+    void shouldNotClaimFreshPendingBook() {
+        repository.registerBook(BookInfo.pending("82809"));
+
+        assertFalse(repository.claimStalePendingBook("82809", Duration.ofMinutes(20)));
+    }
+
+    @Test
+    void shouldClaimStalePendingBookOnceForParallelRequests() throws Exception {
+        repository.registerBook(BookInfo.pending("82809"));
+        dynamoDb.item("82809", "82809").put(ENQUEUED_AT, AttributeValue.builder().s("2023-07-01T10:00:00Z").build());
+        final var requests = 8;
+        final var executor = Executors.newFixedThreadPool(requests);
+        final var start = new CountDownLatch(1);
+        final var results = new ArrayList<Future<Boolean>>();
+        try {
+            for (int i = 0; i < requests; i++) {
+                results.add(executor.submit((Callable<Boolean>) () -> {
+                    start.await();
+                    return repository.claimStalePendingBook("82809", Duration.ofMinutes(20));
+                }));
+            }
+            start.countDown();
+
+            var claims = 0;
+            for (final var result : results) {
+                if (result.get()) claims++;
+            }
+            assertEquals(1, claims);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertFalse(repository.claimStalePendingBook("82809", Duration.ofMinutes(20)));
+        assertNull(dynamoDb.item("82809", "82809").get(REQUESTED_AT));
+    }
+
+    @Test
+    void shouldNeverClaimBookThatIsNotPending() {
+        repository.registerBook(book("82809"));
+        dynamoDb.item("82809", "82809").put(ENQUEUED_AT, AttributeValue.builder().s("2023-07-01T10:00:00Z").build());
+        repository.registerBook(book("1628186"));
+        dynamoDb.item("1628186", "1628186").remove(ENQUEUED_AT);
+
+        assertFalse(repository.claimStalePendingBook("82809", Duration.ofMinutes(20)));
+        assertFalse(repository.claimStalePendingBook("1628186", Duration.ofMinutes(20)));
+        assertFalse(repository.claimStalePendingBook("1", Duration.ofMinutes(20)));
+    }
+
+    private static BookInfo book(final String bookId) {
+        return BookInfo.builder()
+                .id(bookId)
+                .title("Айқап")
+                .build();
+    }
+
+    private static BookRequestContext request(final String bookId, final String userEmail) {
+        return BookRequestContext.builder()
+                .bookId(bookId)
+                .userEmail(userEmail)
+                .requestedAt(OffsetDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package org.serverless.oqu.kerek;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import org.junit.jupiter.api.Test;
+import org.serverless.oqu.kerek.model.BookInfo;
+import org.serverless.oqu.kerek.repo.BookMapper;
+import org.serverless.oqu.kerek.repo.BookRepository;
+import org.serverless.template.LambdaTestContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.CompletableFuture.delayedExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.serverless.oqu.kerek.repo.BookMapper.BOOK_ID;
+import static org.serverless.oqu.kerek.repo.BookMapper.USER_EMAIL;
+
+class BookStatusAccessorTest {
+
+    private final InMemoryDynamoDbClient dynamoDb = new InMemoryDynamoDbClient(BOOK_ID, USER_EMAIL);
+    private final BookRepository repository = new BookRepository(dynamoDb.client(), new BookMapper());
+    private final BookStatusAccessor handler = new BookStatusAccessor(repository);
+
+    @Test
+    void shouldAnswerNotModifiedForMatchingETag() {
+        repository.registerBook(BookInfo.pending("82809"));
+        final var first = handler.handleRequest(request("82809", null, null), new LambdaTestContext());
+
+        final var second = handler.handleRequest(request("82809", first.getHeaders().get("ETag"), null), new LambdaTestContext());
+
+        assertEquals(200, first.getStatusCode());
+        assertEquals("\"82809-1\"", first.getHeaders().get("ETag"));
+        assertTrue(first.getBody().contains("Pending"));
+        assertEquals(304, second.getStatusCode());
+        assertEquals("", second.getBody());
+        assertEquals(first.getHeaders().get("ETag"), second.getHeaders().get("ETag"));
+    }
+
+    @Test
+    void shouldAnswerWithStatusOnceVersionChanges() {
+        repository.registerBook(BookInfo.pending("82809"));
+        final var etag = handler.handleRequest(request("82809", null, null), new LambdaTestContext()).getHeaders().get("ETag");
+
+        repository.updateBookStatus("82809", "InProgress");
+        final var response = handler.handleRequest(request("82809", etag, null), new LambdaTestContext());
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals("\"82809-2\"", response.getHeaders().get("ETag"));
+        assertTrue(response.getBody().contains("InProgress"));
+    }
+
+    @Test
+    void shouldAnswerWithStatusChangedWhileWaiting() {
+        repository.registerBook(BookInfo.pending("82809"));
+        CompletableFuture.runAsync(() -> repository.updateBookStatus("82809", "Ready"), delayedExecutor(300, MILLISECONDS));
+
+        final var response = handler.handleRequest(request("82809", "\"82809-1\"", "5"), new LambdaTestContext());
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals("\"82809-2\"", response.getHeaders().get("ETag"));
+        assertTrue(response.getBody().contains("Ready"));
+    }
+
+    @Test
+    void shouldAnswerWithCurrentStatusWhenWaitTimesOut() {
+        repository.registerBook(BookInfo.pending("82809"));
+        final var start = System.currentTimeMillis();
+
+        final var response = handler.handleRequest(request("82809", "\"82809-1\"", "2"), new LambdaTestContext());
+
+        assertTrue(System.currentTimeMillis() - start >= 1_000);
+        assertEquals(304, response.getStatusCode());
+        assertEquals("\"82809-1\"", response.getHeaders().get("ETag"));
+    }
+
+    @Test
+    void shouldNotKeepConditionOfPreviousRequest() {
+        repository.registerBook(BookInfo.pending("82809"));
+        handler.handleRequest(request("82809", "\"82809-1\"", null), new LambdaTestContext());
+
+        final var response = handler.handleRequest(request("82809", null, null), new LambdaTestContext());
+
+        assertEquals(200, response.getStatusCode());
+        assertTrue(response.getBody().contains("Pending"));
+    }
+
+    private static APIGatewayProxyRequestEvent request(final String bookId, final String ifNoneMatch, final String wait) {
+        final var headers = new HashMap<String, String>();
+        if (ifNoneMatch != null) headers.put("If-None-Match", ifNoneMatch);
+        final var parameters = new HashMap<String, String>();
+        if (wait != null) parameters.put("wait", wait);
+        return new APIGatewayProxyRequestEvent()
+                .withRequestContext(new APIGatewayProxyRequestEvent.ProxyRequestContext().withRequestId("request"))
+                .withPathParameters(Map.of("bookId", bookId))
+                .withHeaders(headers)
+                .withQueryStringParameters(parameters);
+    }
+}
@@ -0,0 +1,74 @@
+package org.serverless.oqu.kerek;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.serverless.template.CustomRuntime;
+import org.serverless.template.TemplateHandler;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class CustomRuntimeTest {
+
+    private static final String EVENT = "{\"httpMethod\":\"POST\",\"path\":\"/template\",\"body\":\"{\\\"data\\\":\\\"Айқап\\\"}\"," +
+            "\"requestContext\":{\"requestId\":\"api-1\"}}";
+
+    @Test
+    void shouldPostHandlerResponseToRuntimeApi() throws Exception {
+        try (final var runtimeApi = new LambdaRuntimeApiStub()) {
+            runtimeApi.enqueue("req-1", EVENT);
+
+            new CustomRuntime(runtimeApi.address(), new TemplateHandler()).processNext();
+
+            assertEquals("invocation/req-1/response", runtimeApi.awaitPost(5));
+            final var response = new Gson().fromJson(runtimeApi.posted.get("invocation/req-1/response"), JsonObject.class);
+            assertEquals(200, response.get("statusCode").getAsInt());
+            assertEquals("Айқап", new Gson().fromJson(response.get("body").getAsString(), JsonObject.class).get("data").getAsString());
+        }
+    }
+
+    @Test
+    void shouldPostInvocationErrorWhenHandlerFails() throws Exception {
+        try (final var runtimeApi = new LambdaRuntimeApiStub()) {
+            runtimeApi.enqueue("req-2", EVENT);
+
+            new CustomRuntime(runtimeApi.address(), (event, context) -> {
+                throw new IllegalStateException("Handler failed");
+            }).processNext();
+
+            assertEquals("invocation/req-2/error", runtimeApi.awaitPost(5));
+            assertTrue(runtimeApi.posted.get("invocation/req-2/error").contains("Handler failed"));
+        }
+    }
+
+    /**
+     * Runs only with the native.binary property, which the nativeRuntimeTest task sets to the built executable.
+     * A limit out of range is rejected before any AWS call, so the handler answers without AWS.
+     */
+    @Test
+    void shouldServeApiHandlerFromNativeBinary() throws Exception {
+        final var binary = System.getProperty("native.binary");
+        assumeTrue(binary != null, "native.binary is not set");
+
+        try (final var runtimeApi = new LambdaRuntimeApiStub()) {
+            runtimeApi.enqueue("req-3", "{\"httpMethod\":\"GET\",\"path\":\"/history\",\"queryStringParameters\":{\"limit\":\"0\"}," +
+                    "\"requestContext\":{\"requestId\":\"api-3\"}}");
+            final var processBuilder = new ProcessBuilder(binary).inheritIO();
+            processBuilder.environment().put("AWS_LAMBDA_RUNTIME_API", runtimeApi.address());
+            processBuilder.environment().put("_HANDLER", "org.serverless.oqu.kerek.UserHistoryAccessor::handleRequest");
+            processBuilder.environment().put("AWS_REGION", "eu-central-1");
+            final var process = processBuilder.start();
+            try {
+                assertEquals("invocation/req-3/response", runtimeApi.awaitPost(30));
+                final var response = new Gson().fromJson(runtimeApi.posted.get("invocation/req-3/response"), JsonObject.class);
+                assertEquals(400, response.get("statusCode").getAsInt());
+            } finally {
+                process.destroy();
+                process.waitFor(5, TimeUnit.SECONDS);
+            }
+        }
+    }
+}
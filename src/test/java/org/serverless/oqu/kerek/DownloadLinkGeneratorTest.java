@@ -0,0 +1,120 @@
+package org.serverless.oqu.kerek;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import org.junit.jupiter.api.Test;
+import org.serverless.oqu.kerek.cache.TtlCache;
+import org.serverless.template.LambdaTestContext;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.http.SdkHttpRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.serverless.oqu.kerek.util.EnvironmentUtils.getDownloadLinkCacheTtl;
+
+class DownloadLinkGeneratorTest {
+
+    private final InMemoryS3Client s3 = new InMemoryS3Client();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger presignRequests = new AtomicInteger();
+    private final DownloadLinkGenerator handler = new DownloadLinkGenerator(s3.client(), presigner(), new TtlCache<String, URL>(10, clock::get));
+
+    @Test
+    void shouldRedirectToLink() {
+        s3.objects.put("82809/book.pdf", new byte[1]);
+
+        final var response = handler.handleRequest(request("82809", "true"), new LambdaTestContext());
+
+        assertEquals(302, response.getStatusCode());
+        assertEquals("https://books.s3.amazonaws.com/82809/book.pdf?signature=1", response.getHeaders().get("Location"));
+        assertEquals("no-store", response.getHeaders().get("Cache-Control"));
+        assertEquals("", response.getBody());
+    }
+
+    @Test
+    void shouldAnswerWithLinkUnlessRedirectIsAskedFor() {
+        s3.objects.put("82809/book.pdf", new byte[1]);
+        handler.handleRequest(request("82809", "true"), new LambdaTestContext());
+
+        final var response = handler.handleRequest(request("82809", null), new LambdaTestContext());
+
+        assertEquals(200, response.getStatusCode());
+        assertNull(response.getHeaders().get("Location"));
+        assertTrue(response.getBody().contains("https://books.s3.amazonaws.com/82809/book.pdf?signature=1"));
+    }
+
+    @Test
+    void shouldServeCachedLinkWithoutS3Requests() {
+        s3.objects.put("82809/book.pdf", new byte[1]);
+        final var first = handler.handleRequest(request("82809", "true"), new LambdaTestContext());
+
+        clock.addAndGet(getDownloadLinkCacheTtl().toMillis() - 1);
+        final var second = handler.handleRequest(request("82809", "true"), new LambdaTestContext());
+
+        assertEquals(first.getHeaders().get("Location"), second.getHeaders().get("Location"));
+        assertEquals(1, s3.headRequests.get());
+        assertEquals(1, presignRequests.get());
+    }
+
+    @Test
+    void shouldSignNewLinkOnceCachedOneExpires() {
+        s3.objects.put("82809/book.pdf", new byte[1]);
+        handler.handleRequest(request("82809", "true"), new LambdaTestContext());
+
+        clock.addAndGet(getDownloadLinkCacheTtl().toMillis());
+        final var response = handler.handleRequest(request("82809", "true"), new LambdaTestContext());
+
+        assertEquals("https://books.s3.amazonaws.com/82809/book.pdf?signature=2", response.getHeaders().get("Location"));
+        assertEquals(2, s3.headRequests.get());
+        assertEquals(2, presignRequests.get());
+    }
+
+    @Test
+    void shouldNotCacheMissingBook() {
+        final var missing = handler.handleRequest(request("82809", "true"), new LambdaTestContext());
+        s3.objects.put("82809/book.pdf", new byte[1]);
+        final var found = handler.handleRequest(request("82809", "true"), new LambdaTestContext());
+
+        assertEquals(404, missing.getStatusCode());
+        assertEquals(302, found.getStatusCode());
+        assertEquals(1, presignRequests.get());
+    }
+
+    private static APIGatewayProxyRequestEvent request(final String bookId, final String redirect) {
+        return new APIGatewayProxyRequestEvent()
+                .withRequestContext(new APIGatewayProxyRequestEvent.ProxyRequestContext().withRequestId("request"))
+                .withPathParameters(Map.of("bookId", bookId))
+                .withQueryStringParameters(redirect == null ? null : Map.of("redirect", redirect));
+    }
+
+    /**
+     * Fake presigner, which numbers the links it signs.
+     */
+    private S3Presigner presigner() {
+        return (S3Presigner) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{S3Presigner.class}, (proxy, method, args) -> {
+            if (!"presignGetObject".equals(method.getName())) throw new UnsupportedOperationException(method.getName());
+            final var request = (GetObjectPresignRequest) args[0];
+            return PresignedGetObjectRequest.builder()
+                    .expiration(Instant.now().plus(request.signatureDuration()))
+                    .isBrowserExecutable(true)
+                    .signedHeaders(Map.of("host", List.of("books.s3.amazonaws.com")))
+                    .httpRequest(SdkHttpRequest.builder()
+                            .method(SdkHttpMethod.GET)
+                            .protocol("https")
+                            .host("books.s3.amazonaws.com")
+                            .encodedPath("/" + request.getObjectRequest().key())
+                            .putRawQueryParameter("signature", String.valueOf(presignRequests.incrementAndGet()))
+                            .build())
+                    .build();
+        });
+    }
+}
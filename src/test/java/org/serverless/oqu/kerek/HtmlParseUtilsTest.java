@@ -1,10 +1,17 @@
 package org.serverless.oqu.kerek;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.serverless.oqu.kerek.util.HtmlParseUtils.extractPagePaths;
 import static org.serverless.oqu.kerek.util.HtmlParseUtils.parseBookInfo;
 
 class HtmlParseUtilsTest {
@@ -30,4 +37,25 @@ class HtmlParseUtilsTest {
             assertEquals(author, b.getAuthor());
         });
     }
+
+    @Test
+    void shouldExtractPagePathsFromScriptsInAnyCase() throws IOException {
+        final var html = "<html><head><title>Кітап</title>\n"
+                + "<script>\n"
+                + "    var pages = [];\n"
+                + "    pages.push(\"/FileStore/dataFiles/8c/12/1628186/content/1.png?time=1690000000&amp;key=a1b2\");\n"
+                + "    pages.push(\"/FileStore/dataFiles/8c/12/1628186/content/2.png?time=1690000000&amp;key=c3d4\");\n"
+                + "    PAGES.Push(\"/FileStore/dataFiles/8c/12/1628186/content/3.png?time=1690000000&amp;key=e5f6\");\n"
+                + "    pages.push(\"/FileStore/broken.png\");\n"
+                + "    xpages.push(\"/FileStore/dataFiles/8c/12/1628186/content/4.png?time=1690000000&amp;key=g7h8\");\n"
+                + "</script></head><body></body></html>";
+
+        final var paths = extractPagePaths(new ByteArrayInputStream(html.getBytes(UTF_8)));
+
+        assertEquals(List.of(
+                "/FileStore/dataFiles/8c/12/1628186/content/1.png?time=1690000000&amp;key=a1b2",
+                "/FileStore/dataFiles/8c/12/1628186/content/2.png?time=1690000000&amp;key=c3d4",
+                "/FileStore/dataFiles/8c/12/1628186/content/3.png?time=1690000000&amp;key=e5f6"
+        ), paths);
+    }
 }
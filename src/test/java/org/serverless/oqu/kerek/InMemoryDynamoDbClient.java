@@ -0,0 +1,440 @@
+package org.serverless.oqu.kerek;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import static java.util.stream.Collectors.toList;
+import static org.serverless.oqu.kerek.repo.BookMapper.REQUESTED_AT;
+
+/**
+ * Minimal in-memory stand-in for {@link DynamoDbClient} with the key schema of the books table,
+ * which supports only the operations used by the repository. Expressions are limited to what the repository writes:
+ * SET (with {@code if_not_exists}), REMOVE and ADD of numbers in updates, and comparisons, {@code attribute_exists},
+ * {@code attribute_not_exists}, AND, OR and parentheses in conditions.
+ */
+class InMemoryDynamoDbClient {
+
+    private static final Pattern UPDATE_CLAUSE = Pattern.compile("\\b(SET|REMOVE|ADD)\\b");
+    private static final Pattern TOKEN = Pattern.compile("\\s*(<=|>=|<>|[=<>(),]|[#:]?\\w+)");
+    private static final Pattern IF_NOT_EXISTS = Pattern.compile("if_not_exists\\(\\s*([#\\w]+)\\s*,\\s*(:\\w+)\\s*\\)");
+
+    final Map<String, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+    final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    /**
+     * Number of the next written items to be left unprocessed by batch writes, as DynamoDB does when throttled.
+     */
+    final AtomicInteger unprocessedWrites = new AtomicInteger();
+    /**
+     * Number of the next read keys to be left unprocessed by batch reads.
+     */
+    final AtomicInteger unprocessedReads = new AtomicInteger();
+
+    private final String partitionKey;
+    private final String sortKey;
+
+    InMemoryDynamoDbClient(final String partitionKey, final String sortKey) {
+        this.partitionKey = partitionKey;
+        this.sortKey = sortKey;
+    }
+
+    DynamoDbClient client() {
+        return (DynamoDbClient) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{DynamoDbClient.class}, (proxy, method, args) -> invoke(method, args));
+    }
+
+    Map<String, AttributeValue> item(final String partitionValue, final String sortValue) {
+        return items.get(key(partitionValue, sortValue));
+    }
+
+    int requests(final String operation) {
+        return requests.getOrDefault(operation, new AtomicInteger()).get();
+    }
+
+    private Object invoke(final Method method, final Object[] args) throws ReflectiveOperationException {
+        if ("serviceName".equals(method.getName())) return "dynamodb";
+        if ("close".equals(method.getName())) return null;
+
+        requests.computeIfAbsent(method.getName(), ignored -> new AtomicInteger()).incrementAndGet();
+        final var request = args[0] instanceof Consumer ? buildRequest(method, (Consumer<?>) args[0]) : args[0];
+        switch (method.getName()) {
+            case "putItem":
+                return putItem((PutItemRequest) request);
+            case "updateItem":
+                return updateItem((UpdateItemRequest) request);
+            case "query":
+                return query((QueryRequest) request);
+            case "getItem":
+                return getItem((GetItemRequest) request);
+            case "batchGetItem":
+                return batchGetItem((BatchGetItemRequest) request);
+            case "batchWriteItem":
+                return batchWriteItem((BatchWriteItemRequest) request);
+            case "transactWriteItems":
+                return transactWriteItems((TransactWriteItemsRequest) request);
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    /**
+     * Builds the request the way the default methods of the client taking a builder consumer do.
+     */
+    @SuppressWarnings("unchecked")
+    private Object buildRequest(final Method method, final Consumer<?> consumer) throws ReflectiveOperationException {
+        final var requestClass = Class.forName(PutItemRequest.class.getPackageName() + "."
+                + Character.toUpperCase(method.getName().charAt(0)) + method.getName().substring(1) + "Request");
+        final var builder = requestClass.getMethod("builder").invoke(null);
+        ((Consumer<Object>) consumer).accept(builder);
+        return builder.getClass().getMethod("build").invoke(builder);
+    }
+
+    private synchronized PutItemResponse putItem(final PutItemRequest request) {
+        final var key = key(request.item());
+        if (!matches(items.get(key), request.conditionExpression(), request.expressionAttributeNames(), request.expressionAttributeValues())) {
+            throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+        }
+        items.put(key, new HashMap<>(request.item()));
+        return PutItemResponse.builder().build();
+    }
+
+    /**
+     * Supports update expressions, and of the legacy attribute updates only putting values and adding to numbers.
+     */
+    private synchronized UpdateItemResponse updateItem(final UpdateItemRequest request) {
+        if (request.updateExpression() != null) {
+            final var key = key(request.key());
+            if (!matches(items.get(key), request.conditionExpression(), request.expressionAttributeNames(), request.expressionAttributeValues())) {
+                throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+            }
+            final var item = new HashMap<>(items.getOrDefault(key, request.key()));
+            final var updated = update(item, request.updateExpression(), request.expressionAttributeNames(), request.expressionAttributeValues());
+            items.put(key, item);
+            return UpdateItemResponse.builder()
+                    .attributes(request.returnValues() == ReturnValue.UPDATED_NEW ? updated : null)
+                    .build();
+        }
+        final var item = items.computeIfAbsent(key(request.key()), ignored -> new HashMap<>(request.key()));
+        request.attributeUpdates().forEach((attribute, update) -> {
+            if (update.action() == AttributeAction.PUT) {
+                item.put(attribute, update.value());
+            } else if (update.action() == AttributeAction.ADD) {
+                final var current = item.containsKey(attribute) ? Long.parseLong(item.get(attribute).n()) : 0;
+                item.put(attribute, AttributeValue.builder().n(String.valueOf(current + Long.parseLong(update.value().n()))).build());
+            } else {
+                throw new UnsupportedOperationException(update.actionAsString());
+            }
+        });
+        return UpdateItemResponse.builder().build();
+    }
+
+    /**
+     * Queries the index of the requests of a user, newest first, which is the only query made by the repository.
+     */
+    private QueryResponse query(final QueryRequest request) {
+        final var userEmail = request.expressionAttributeValues().get(":email").s();
+        final var startKey = request.hasExclusiveStartKey() ? request.exclusiveStartKey() : null;
+        final var requests = items.values().stream()
+                .filter(item -> item.containsKey(REQUESTED_AT) && userEmail.equals(item.get(sortKey).s()))
+                .sorted(Comparator.<Map<String, AttributeValue>, String>comparing(item -> item.get(REQUESTED_AT).s())
+                        .thenComparing(item -> item.get(partitionKey).s())
+                        .reversed())
+                .dropWhile(item -> startKey != null && !key(item).equals(key(startKey)))
+                .skip(startKey == null ? 0 : 1)
+                .collect(toList());
+        final var page = requests.subList(0, Math.min(request.limit(), requests.size()));
+        final var response = QueryResponse.builder().items(page);
+        if (page.size() < requests.size()) {
+            final var last = page.get(page.size() - 1);
+            response.lastEvaluatedKey(Map.of(partitionKey, last.get(partitionKey), sortKey, last.get(sortKey), REQUESTED_AT, last.get(REQUESTED_AT)));
+        }
+        return response.build();
+    }
+
+    private GetItemResponse getItem(final GetItemRequest request) {
+        final var item = items.get(key(request.key()));
+        return GetItemResponse.builder().item(item == null ? null : Map.copyOf(item)).build();
+    }
+
+    private BatchGetItemResponse batchGetItem(final BatchGetItemRequest request) {
+        final var responses = new HashMap<String, List<Map<String, AttributeValue>>>();
+        final var unprocessed = new HashMap<String, KeysAndAttributes>();
+        request.requestItems().forEach((table, keysAndAttributes) -> {
+            final var found = new ArrayList<Map<String, AttributeValue>>();
+            final var unprocessedKeys = new ArrayList<Map<String, AttributeValue>>();
+            for (final var key : keysAndAttributes.keys()) {
+                if (unprocessedReads.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    unprocessedKeys.add(key);
+                    continue;
+                }
+                final var item = items.get(key(key));
+                if (item != null) found.add(Map.copyOf(item));
+            }
+            responses.put(table, found);
+            if (!unprocessedKeys.isEmpty()) unprocessed.put(table, keysAndAttributes.toBuilder().keys(unprocessedKeys).build());
+        });
+        return BatchGetItemResponse.builder().responses(responses).unprocessedKeys(unprocessed).build();
+    }
+
+    private synchronized BatchWriteItemResponse batchWriteItem(final BatchWriteItemRequest request) {
+        final var unprocessed = new HashMap<String, List<WriteRequest>>();
+        request.requestItems().forEach((table, writes) -> writes.forEach(write -> {
+            if (unprocessedWrites.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                unprocessed.computeIfAbsent(table, ignored -> new ArrayList<>()).add(write);
+                return;
+            }
+            if (write.putRequest() != null) items.put(key(write.putRequest().item()), new HashMap<>(write.putRequest().item()));
+            if (write.deleteRequest() != null) items.remove(key(write.deleteRequest().key()));
+        }));
+        return BatchWriteItemResponse.builder().unprocessedItems(unprocessed).build();
+    }
+
+    /**
+     * Applies all the writes or none of them, reporting the condition failures the way DynamoDB does.
+     */
+    private synchronized TransactWriteItemsResponse transactWriteItems(final TransactWriteItemsRequest request) {
+        final var reasons = request.transactItems().stream()
+                .map(write -> {
+                    final boolean matches;
+                    if (write.put() != null) {
+                        final var put = write.put();
+                        matches = matches(items.get(key(put.item())), put.conditionExpression(), put.expressionAttributeNames(), put.expressionAttributeValues());
+                    } else if (write.update() != null) {
+                        final var update = write.update();
+                        matches = matches(items.get(key(update.key())), update.conditionExpression(), update.expressionAttributeNames(), update.expressionAttributeValues());
+                    } else {
+                        throw new UnsupportedOperationException(write.toString());
+                    }
+                    return CancellationReason.builder().code(matches ? "None" : "ConditionalCheckFailed").build();
+                })
+                .collect(toList());
+        if (reasons.stream().anyMatch(reason -> !"None".equals(reason.code()))) {
+            throw TransactionCanceledException.builder()
+                    .message("Transaction cancelled")
+                    .cancellationReasons(reasons)
+                    .build();
+        }
+
+        for (final var write : request.transactItems()) {
+            if (write.put() != null) {
+                items.put(key(write.put().item()), new HashMap<>(write.put().item()));
+            } else {
+                final var update = write.update();
+                final var item = new HashMap<>(items.getOrDefault(key(update.key()), update.key()));
+                update(item, update.updateExpression(), update.expressionAttributeNames(), update.expressionAttributeValues());
+                items.put(key(update.key()), item);
+            }
+        }
+        return TransactWriteItemsResponse.builder().build();
+    }
+
+    /**
+     * Applies the update expression to the item.
+     *
+     * @return the attributes set or added by the update, with their new values
+     */
+    private static Map<String, AttributeValue> update(final Map<String, AttributeValue> item, final String expression,
+                                                      final Map<String, String> names, final Map<String, AttributeValue> values) {
+        final var updated = new HashMap<String, AttributeValue>();
+        final var matcher = UPDATE_CLAUSE.matcher(expression);
+        final var keywords = new ArrayList<String>();
+        final var bounds = new ArrayList<int[]>();
+        while (matcher.find()) {
+            keywords.add(matcher.group(1));
+            bounds.add(new int[]{matcher.start(), matcher.end()});
+        }
+        final var clauses = new ArrayList<String[]>();
+        for (int i = 0; i < keywords.size(); i++) {
+            final var end = i + 1 < bounds.size() ? bounds.get(i + 1)[0] : expression.length();
+            clauses.add(new String[]{keywords.get(i), expression.substring(bounds.get(i)[1], end)});
+        }
+
+        for (final var clause : clauses) {
+            for (final var action : splitActions(clause[1])) {
+                switch (clause[0]) {
+                    case "SET": {
+                        final var parts = action.split("=", 2);
+                        final var attribute = name(parts[0].trim(), names);
+                        final var value = parts[1].trim();
+                        final var ifNotExists = IF_NOT_EXISTS.matcher(value);
+                        final AttributeValue newValue;
+                        if (ifNotExists.matches()) {
+                            final var existing = item.get(name(ifNotExists.group(1), names));
+                            newValue = existing != null ? existing : values.get(ifNotExists.group(2));
+                        } else {
+                            newValue = operand(value, item, names, values);
+                        }
+                        item.put(attribute, newValue);
+                        updated.put(attribute, newValue);
+                        break;
+                    }
+                    case "REMOVE":
+                        item.remove(name(action.trim(), names));
+                        break;
+                    case "ADD": {
+                        final var parts = action.trim().split("\\s+");
+                        final var attribute = name(parts[0], names);
+                        final var current = item.containsKey(attribute) ? Long.parseLong(item.get(attribute).n()) : 0;
+                        final var newValue = AttributeValue.builder().n(String.valueOf(current + Long.parseLong(values.get(parts[1]).n()))).build();
+                        item.put(attribute, newValue);
+                        updated.put(attribute, newValue);
+                        break;
+                    }
+                    default:
+                        throw new UnsupportedOperationException(clause[0]);
+                }
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Splits the actions of an update clause at the commas outside of function calls.
+     */
+    private static List<String> splitActions(final String clause) {
+        final var actions = new ArrayList<String>();
+        var depth = 0;
+        var start = 0;
+        for (int i = 0; i < clause.length(); i++) {
+            final var c = clause.charAt(i);
+            if (c == '(') depth++;
+            if (c == ')') depth--;
+            if (c == ',' && depth == 0) {
+                actions.add(clause.substring(start, i));
+                start = i + 1;
+            }
+        }
+        actions.add(clause.substring(start));
+        return actions;
+    }
+
+    private static boolean matches(final Map<String, AttributeValue> item, final String condition,
+                                   final Map<String, String> names, final Map<String, AttributeValue> values) {
+        if (condition == null) return true;
+        final var tokens = new ArrayList<String>();
+        final var matcher = TOKEN.matcher(condition);
+        var end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            tokens.add(matcher.group(1));
+            end = matcher.end();
+        }
+        if (!condition.substring(end).isBlank()) throw new UnsupportedOperationException(condition);
+        final var parser = new ConditionParser(tokens, item == null ? Map.of() : item, names, values);
+        final var result = parser.or();
+        if (parser.position != tokens.size()) throw new UnsupportedOperationException(condition);
+        return result;
+    }
+
+    private static String name(final String token, final Map<String, String> names) {
+        return token.startsWith("#") ? names.get(token) : token;
+    }
+
+    private static AttributeValue operand(final String token, final Map<String, AttributeValue> item,
+                                          final Map<String, String> names, final Map<String, AttributeValue> values) {
+        return token.startsWith(":") ? values.get(token) : item.get(name(token, names));
+    }
+
+    /**
+     * Recursive descent over the tokens of a condition, OR binding weaker than AND.
+     */
+    private static final class ConditionParser {
+
+        private final List<String> tokens;
+        private final Map<String, AttributeValue> item;
+        private final Map<String, String> names;
+        private final Map<String, AttributeValue> values;
+        private int position;
+
+        private ConditionParser(final List<String> tokens, final Map<String, AttributeValue> item,
+                                final Map<String, String> names, final Map<String, AttributeValue> values) {
+            this.tokens = tokens;
+            this.item = item;
+            this.names = names;
+            this.values = values;
+        }
+
+        private boolean or() {
+            var result = and();
+            while (accept("OR")) {
+                result = and() | result;
+            }
+            return result;
+        }
+
+        private boolean and() {
+            var result = primary();
+            while (accept("AND")) {
+                result = primary() & result;
+            }
+            return result;
+        }
+
+        private boolean primary() {
+            if (accept("(")) {
+                final var result = or();
+                expect(")");
+                return result;
+            }
+            if (accept("attribute_exists") || accept("attribute_not_exists")) {
+                final var exists = "attribute_exists".equals(tokens.get(position - 1));
+                expect("(");
+                final var attribute = name(tokens.get(position++), names);
+                expect(")");
+                return item.containsKey(attribute) == exists;
+            }
+            final var left = operand(tokens.get(position++), item, names, values);
+            final var comparator = tokens.get(position++);
+            final var right = operand(tokens.get(position++), item, names, values);
+            if (left == null || right == null) return false;
+            final var comparison = left.n() != null && right.n() != null
+                    ? Long.compare(Long.parseLong(left.n()), Long.parseLong(right.n()))
+                    : left.s().compareTo(right.s());
+            switch (comparator) {
+                case "=":
+                    return comparison == 0;
+                case "<>":
+                    return comparison != 0;
+                case "<":
+                    return comparison < 0;
+                case "<=":
+                    return comparison <= 0;
+                case ">":
+                    return comparison > 0;
+                case ">=":
+                    return comparison >= 0;
+                default:
+                    throw new UnsupportedOperationException(comparator);
+            }
+        }
+
+        private boolean accept(final String token) {
+            if (position < tokens.size() && tokens.get(position).equals(token)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(final String token) {
+            if (!accept(token)) throw new UnsupportedOperationException("Expected " + token + " at " + position + " of " + tokens);
+        }
+    }
+
+    private String key(final Map<String, AttributeValue> item) {
+        return key(item.get(partitionKey).s(), item.get(sortKey).s());
+    }
+
+    private static String key(final String partitionValue, final String sortValue) {
+        return partitionValue + "|" + sortValue;
+    }
+}
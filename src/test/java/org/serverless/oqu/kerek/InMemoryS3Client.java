@@ -0,0 +1,131 @@
+package org.serverless.oqu.kerek;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Minimal in-memory stand-in for {@link S3Client} which supports only the operations used by the handlers.
+ */
+class InMemoryS3Client {
+
+    final Map<String, byte[]> objects = new ConcurrentSkipListMap<>();
+    final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    final AtomicInteger abortedUploads = new AtomicInteger();
+    final AtomicInteger listRequests = new AtomicInteger();
+    final AtomicInteger headRequests = new AtomicInteger();
+    volatile String failOnPartNumber;
+
+    private static final int MAX_KEYS = 1000;
+
+    private final AtomicInteger uploadIds = new AtomicInteger();
+
+    S3Client client() {
+        return (S3Client) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{S3Client.class}, (proxy, method, args) -> invoke((S3Client) proxy, method, args));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object invoke(final S3Client proxy, final Method method, final Object[] args) {
+        switch (method.getName()) {
+            case "listObjectsV2Paginator":
+                return new ListObjectsV2Iterable(proxy, (ListObjectsV2Request) args[0]);
+            case "listObjectsV2":
+                return listObjectsV2((ListObjectsV2Request) args[0]);
+            case "headObject":
+                return headObject(args[0] instanceof Consumer ? buildHeadObjectRequest((Consumer<HeadObjectRequest.Builder>) args[0]) : (HeadObjectRequest) args[0]);
+            case "createMultipartUpload":
+                return createMultipartUpload((CreateMultipartUploadRequest) args[0]);
+            case "uploadPart":
+                return uploadPart((UploadPartRequest) args[0], (RequestBody) args[1]);
+            case "completeMultipartUpload":
+                return completeMultipartUpload((CompleteMultipartUploadRequest) args[0]);
+            case "abortMultipartUpload":
+                return abortMultipartUpload((AbortMultipartUploadRequest) args[0]);
+            case "serviceName":
+                return "s3";
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    private ListObjectsV2Response listObjectsV2(final ListObjectsV2Request request) {
+        listRequests.incrementAndGet();
+        final var start = request.continuationToken() != null ? request.continuationToken() : request.prefix();
+        final var keys = ((ConcurrentSkipListMap<String, byte[]>) objects).tailMap(start, request.continuationToken() == null)
+                .keySet()
+                .stream()
+                .filter(key -> key.startsWith(request.prefix()))
+                .limit(MAX_KEYS + 1)
+                .collect(toList());
+        final var page = keys.subList(0, Math.min(MAX_KEYS, keys.size()));
+        final var truncated = keys.size() > MAX_KEYS;
+        return ListObjectsV2Response.builder()
+                .contents(page.stream().map(key -> S3Object.builder().key(key).size((long) objects.get(key).length).build()).collect(toList()))
+                .isTruncated(truncated)
+                .nextContinuationToken(truncated ? page.get(page.size() - 1) : null)
+                .build();
+    }
+
+    private static HeadObjectRequest buildHeadObjectRequest(final Consumer<HeadObjectRequest.Builder> consumer) {
+        final var builder = HeadObjectRequest.builder();
+        consumer.accept(builder);
+        return builder.build();
+    }
+
+    private HeadObjectResponse headObject(final HeadObjectRequest request) {
+        headRequests.incrementAndGet();
+        final var content = objects.get(request.key());
+        if (content == null) throw NoSuchKeyException.builder().statusCode(404).message("Not Found").build();
+        return HeadObjectResponse.builder().contentLength((long) content.length).build();
+    }
+
+    private CreateMultipartUploadResponse createMultipartUpload(final CreateMultipartUploadRequest request) {
+        final var uploadId = request.key() + "#" + uploadIds.incrementAndGet();
+        uploads.put(uploadId, new ConcurrentHashMap<>());
+        return CreateMultipartUploadResponse.builder().uploadId(uploadId).build();
+    }
+
+    private UploadPartResponse uploadPart(final UploadPartRequest request, final RequestBody body) {
+        if (String.valueOf(request.partNumber()).equals(failOnPartNumber)) {
+            throw S3Exception.builder().message("Part upload failed").statusCode(500).build();
+        }
+        uploads.get(request.uploadId()).put(request.partNumber(), read(body));
+        return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+    }
+
+    private CompleteMultipartUploadResponse completeMultipartUpload(final CompleteMultipartUploadRequest request) {
+        final var parts = uploads.remove(request.uploadId());
+        final var content = new ByteArrayOutputStream();
+        request.multipartUpload().parts().forEach(part -> content.writeBytes(parts.get(part.partNumber())));
+        objects.put(request.key(), content.toByteArray());
+        return CompleteMultipartUploadResponse.builder().key(request.key()).build();
+    }
+
+    private AbortMultipartUploadResponse abortMultipartUpload(final AbortMultipartUploadRequest request) {
+        uploads.remove(request.uploadId());
+        abortedUploads.incrementAndGet();
+        return AbortMultipartUploadResponse.builder().build();
+    }
+
+    private byte[] read(final RequestBody body) {
+        try (final var stream = body.contentStreamProvider().newStream()) {
+            return stream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.serverless.oqu.kerek;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the Lambda runtime API, which hands out the queued events and records what the runtime posts back.
+ */
+class LambdaRuntimeApiStub implements AutoCloseable {
+
+    private static final String PREFIX = "/2018-06-01/runtime/";
+
+    final Map<String, String> posted = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<String[]> events = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> postedPaths = new LinkedBlockingQueue<>();
+    private final HttpServer server;
+
+    LambdaRuntimeApiStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(PREFIX, this::handle);
+        server.setExecutor(Executors.newCachedThreadPool(r -> {
+            final var thread = new Thread(r, "runtime-api-stub");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+    }
+
+    String address() {
+        return "localhost:" + server.getAddress().getPort();
+    }
+
+    void enqueue(final String requestId, final String event) {
+        events.add(new String[]{requestId, event});
+    }
+
+    /**
+     * Waits for the runtime to post to a path, e.g. {@code invocation/req-1/response}, and returns the path.
+     */
+    String awaitPost(final long timeoutSeconds) throws InterruptedException {
+        return postedPaths.poll(timeoutSeconds, TimeUnit.SECONDS);
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        final var path = exchange.getRequestURI().getPath().substring(PREFIX.length());
+        try {
+            if ("GET".equals(exchange.getRequestMethod()) && "invocation/next".equals(path)) {
+                final var event = events.take();
+                final var body = event[1].getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Lambda-Runtime-Aws-Request-Id", event[0]);
+                exchange.getResponseHeaders().add("Lambda-Runtime-Deadline-Ms", String.valueOf(System.currentTimeMillis() + 30_000));
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } else {
+                posted.put(path, new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                postedPaths.add(path);
+                exchange.sendResponseHeaders(202, -1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,80 @@
+package org.serverless.oqu.kerek;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.serverless.template.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.serverless.template.Metrics.*;
+
+class MetricsTest {
+
+    private final List<String> records = new ArrayList<>();
+    private final Metrics metrics = new Metrics("OquKerek", records::add, () -> 1_688_205_600_000L, true);
+
+    @Test
+    void shouldWriteEmbeddedMetricFormatRecord() {
+        metrics.time(ORIGIN_FETCH_TIME, 120);
+        metrics.time(ORIGIN_FETCH_TIME, 80);
+        metrics.count(PAGES_LOADED, 1);
+        metrics.count(PAGES_LOADED, 2);
+        metrics.countBytes(S3_PUT_BYTES, 1024);
+
+        metrics.flush("BookPagesLoader", "Success");
+
+        assertEquals(1, records.size());
+        final var record = new Gson().fromJson(records.get(0), JsonObject.class);
+        final var aws = record.getAsJsonObject("_aws");
+        final var directive = aws.getAsJsonArray("CloudWatchMetrics").get(0).getAsJsonObject();
+        assertEquals(1_688_205_600_000L, aws.get("Timestamp").getAsLong());
+        assertEquals("OquKerek", directive.get("Namespace").getAsString());
+        assertEquals("[[\"Handler\",\"Outcome\"]]", directive.get("Dimensions").toString());
+        assertEquals(3, directive.getAsJsonArray("Metrics").size());
+        assertEquals("BookPagesLoader", record.get("Handler").getAsString());
+        assertEquals("Success", record.get("Outcome").getAsString());
+        assertEquals("[120,80]", record.get(ORIGIN_FETCH_TIME).toString());
+        assertEquals(3, record.get(PAGES_LOADED).getAsLong());
+        assertEquals(1024, record.get(S3_PUT_BYTES).getAsLong());
+        assertTrue(records.get(0).contains("{\"Name\":\"S3PutBytes\",\"Unit\":\"Bytes\"}"));
+    }
+
+    @Test
+    void shouldSplitTimerSamplesAcrossRecords() {
+        for (int i = 0; i < 250; i++) metrics.time(PDF_PAGE_RENDER_TIME, i);
+        metrics.count(PAGES_RENDERED, 250);
+
+        metrics.flush("BookSegmentAssembler", "Success");
+
+        assertEquals(3, records.size());
+        final var gson = new Gson();
+        var samples = 0;
+        for (final var line : records) {
+            samples += gson.fromJson(line, JsonObject.class).getAsJsonArray(PDF_PAGE_RENDER_TIME).size();
+        }
+        assertEquals(250, samples);
+        assertTrue(gson.fromJson(records.get(0), JsonObject.class).has(PAGES_RENDERED));
+        assertFalse(gson.fromJson(records.get(1), JsonObject.class).has(PAGES_RENDERED));
+    }
+
+    @Test
+    void shouldStartOverAfterFlush() {
+        metrics.count(ORIGIN_RETRIES, 1);
+        metrics.flush("BookParser", "Success");
+        metrics.flush("BookParser", "Success");
+
+        assertEquals(1, records.size());
+    }
+
+    @Test
+    void shouldWriteNothingWhenDisabled() {
+        final var disabled = new Metrics("OquKerek", records::add, System::currentTimeMillis, false);
+        disabled.count(INVOCATIONS, 1);
+        disabled.flush("BookParser", "Success");
+
+        assertTrue(records.isEmpty());
+    }
+}
@@ -0,0 +1,140 @@
+package org.serverless.oqu.kerek;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.serverless.oqu.kerek.http.OriginClient;
+import org.serverless.oqu.kerek.http.OriginException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPOutputStream;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OriginClientTest {
+
+    private final OriginClient client = new OriginClient(Duration.ofSeconds(1), Duration.ofSeconds(5));
+    private final CountDownLatch stalledBodyReleased = new CountDownLatch(1);
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/page.png", exchange -> {
+            final var body = "page-content".getBytes();
+            exchange.getResponseHeaders().add("Content-Type", "image/png");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/book.html", exchange -> {
+            final var body = new ByteArrayOutputStream();
+            try (final var gzip = new GZIPOutputStream(body)) {
+                gzip.write("<html>Кітап</html>".getBytes(UTF_8));
+            }
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.size());
+            exchange.getResponseBody().write(body.toByteArray());
+            exchange.close();
+        });
+        server.createContext("/accept-encoding", exchange -> {
+            final var body = String.valueOf(exchange.getRequestHeaders().getFirst("Accept-Encoding")).getBytes(UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/stalled.png", exchange -> {
+            exchange.sendResponseHeaders(200, 100);
+            exchange.getResponseBody().write(new byte[10]);
+            exchange.getResponseBody().flush();
+            try {
+                stalledBodyReleased.await(10, SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.createContext("/missing.png", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        stalledBodyReleased.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void shouldStreamResponseBody() throws IOException {
+        try (final var response = client.get(url("/page.png"))) {
+            assertEquals(12, response.contentLength().orElseThrow());
+            assertEquals("image/png", response.contentType().orElseThrow());
+            assertEquals("page-content", new String(response.body().readAllBytes()));
+        }
+    }
+
+    @Test
+    void shouldFailOnUnsuccessfulResponse() {
+        final var exception = assertThrows(OriginException.class, () -> client.get(url("/missing.png")));
+        assertEquals(404, exception.getStatusCode());
+    }
+
+    @Test
+    void shouldRequestAndDecompressCompressedPages() throws IOException {
+        try (final var response = client.getPage(url("/book.html"))) {
+            assertTrue(response.contentLength().isEmpty());
+            assertEquals(UTF_8, response.charset().orElseThrow());
+            assertEquals("<html>Кітап</html>", new String(response.body().readAllBytes(), UTF_8));
+        }
+        try (final var response = client.getPage(url("/accept-encoding"))) {
+            assertEquals("gzip, deflate", new String(response.body().readAllBytes(), UTF_8));
+        }
+    }
+
+    @Test
+    void shouldNotRequestCompressedImages() throws IOException {
+        try (final var response = client.get(url("/accept-encoding"))) {
+            assertEquals("null", new String(response.body().readAllBytes(), UTF_8));
+        }
+    }
+
+    @Test
+    @Timeout(5)
+    void shouldFailOnBodyStalledLongerThanReadTimeout() throws IOException {
+        final var client = new OriginClient(Duration.ofSeconds(1), Duration.ofMillis(500));
+        try (final var response = client.get(url("/stalled.png"))) {
+            assertThrows(HttpTimeoutException.class, () -> response.body().readAllBytes());
+        }
+        assertTrue(client.metrics().snapshot().get("localhost").contains("open=0"));
+    }
+
+    @Test
+    void shouldCountRequestsPerHost() throws IOException {
+        try (final var response = client.get(url("/page.png"))) {
+            response.body().readAllBytes();
+            assertTrue(client.metrics().snapshot().get("localhost").contains("open=1"));
+        }
+        assertThrows(OriginException.class, () -> client.get(url("/missing.png")));
+
+        final var metrics = client.metrics().snapshot().get("localhost");
+        assertTrue(metrics.startsWith("requests=2, failures=1, retries=0, open=0"), metrics);
+    }
+
+    private String url(final String path) {
+        return format("http://localhost:%d%s", server.getAddress().getPort(), path);
+    }
+}
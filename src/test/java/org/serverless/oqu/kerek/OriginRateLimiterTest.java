@@ -0,0 +1,158 @@
+package org.serverless.oqu.kerek;
+
+import org.junit.jupiter.api.Test;
+import org.serverless.oqu.kerek.http.CircuitOpenException;
+import org.serverless.oqu.kerek.http.InMemoryRateLimiterStore;
+import org.serverless.oqu.kerek.http.OriginException;
+import org.serverless.oqu.kerek.http.OriginRateLimiter;
+import org.serverless.oqu.kerek.http.RateLimiterSettings;
+import org.serverless.oqu.kerek.http.RateLimiterState;
+import org.serverless.oqu.kerek.http.RateLimiterStore;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OriginRateLimiterTest {
+
+    private static final String KEY = "kazneb.kz";
+
+    private final InMemoryRateLimiterStore store = new InMemoryRateLimiterStore();
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final RateLimiterSettings settings = RateLimiterSettings.builder()
+            .initialRate(10)
+            .minRate(1)
+            .maxRate(20)
+            .burst(5)
+            .leaseSize(1)
+            .increaseEvery(1)
+            .failureThreshold(3)
+            .openDuration(Duration.ofSeconds(30))
+            .build();
+    private final OriginRateLimiter limiter = new OriginRateLimiter(store, KEY, settings, clock::get, clock::addAndGet);
+
+    @Test
+    void shouldWaitForTokensOnceBurstIsSpent() throws IOException {
+        for (int i = 0; i < 5; i++) limiter.acquire();
+        assertEquals(1_000_000, clock.get());
+
+        limiter.acquire();
+        assertEquals(1_000_100, clock.get());
+    }
+
+    @Test
+    void shouldShareBucketBetweenLimiters() throws IOException {
+        final var other = new OriginRateLimiter(store, KEY, settings, clock::get, clock::addAndGet);
+        for (int i = 0; i < 3; i++) limiter.acquire();
+        for (int i = 0; i < 2; i++) other.acquire();
+
+        other.acquire();
+        assertEquals(1_000_100, clock.get());
+    }
+
+    @Test
+    void shouldIncreaseRateAdditivelyAndDecreaseMultiplicatively() throws IOException {
+        limiter.execute(() -> "page");
+        assertEquals(11, rate());
+
+        assertThrows(OriginException.class, () -> limiter.execute(() -> {
+            throw new OriginException("https://kazneb.kz/page.png", 429);
+        }));
+        assertEquals(5.5, rate());
+    }
+
+    @Test
+    void shouldTreatSlowResponsesAsOverload() throws IOException {
+        limiter.execute(() -> clock.addAndGet(settings.getLatencyThreshold().toMillis() + 1));
+        assertEquals(5, rate());
+    }
+
+    @Test
+    void shouldIgnoreClientErrors() {
+        assertThrows(OriginException.class, () -> limiter.execute(() -> {
+            throw new OriginException("https://kazneb.kz/page.png", 404);
+        }));
+        assertEquals(10, rate());
+    }
+
+    @Test
+    void shouldOpenCircuitAfterConsecutiveFailuresAndCloseAfterSuccess() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            assertThrows(OriginException.class, () -> limiter.execute(() -> {
+                throw new OriginException("https://kazneb.kz/page.png", 503);
+            }));
+        }
+        assertThrows(CircuitOpenException.class, () -> limiter.execute(() -> fail("Must not call the origin")));
+
+        clock.addAndGet(settings.getOpenDuration().toMillis());
+        assertEquals("page", limiter.execute(() -> "page"));
+        assertEquals(0, store.load(KEY).orElseThrow().getFailures());
+    }
+
+    @Test
+    void shouldLetSingleProbeThroughHalfOpenCircuit() throws IOException {
+        final var other = new OriginRateLimiter(store, KEY, settings, clock::get, clock::addAndGet);
+        openCircuit();
+        clock.addAndGet(settings.getOpenDuration().toMillis());
+
+        assertEquals("page", limiter.execute(() -> {
+            assertThrows(CircuitOpenException.class, other::acquire);
+            assertThrows(CircuitOpenException.class, limiter::acquire);
+            return "page";
+        }));
+        assertEquals(0, store.load(KEY).orElseThrow().getFailures());
+        assertEquals(0, store.load(KEY).orElseThrow().getCircuitOpenUntil());
+        limiter.acquire();
+    }
+
+    @Test
+    void shouldOpenCircuitAgainWhenProbeFails() {
+        openCircuit();
+        clock.addAndGet(settings.getOpenDuration().toMillis());
+
+        assertThrows(OriginException.class, () -> limiter.execute(() -> {
+            throw new OriginException("https://kazneb.kz/page.png", 503);
+        }));
+        assertThrows(CircuitOpenException.class, () -> limiter.execute(() -> fail("Must not call the origin")));
+    }
+
+    @Test
+    void shouldBackOffAndGiveUpWhenBucketIsContended() {
+        final var sleeps = new ArrayList<Long>();
+        final var contendedStore = new RateLimiterStore() {
+            @Override
+            public Optional<RateLimiterState> load(final String key) {
+                return Optional.empty();
+            }
+
+            @Override
+            public boolean save(final String key, final RateLimiterState state, final long expectedVersion) {
+                return false;
+            }
+        };
+        final var contended = new OriginRateLimiter(contendedStore, KEY, settings, clock::get, sleeps::add);
+
+        assertThrows(IOException.class, contended::acquire);
+        assertEquals(4, sleeps.size());
+        for (int i = 0; i < sleeps.size(); i++) {
+            final var backoff = 10L << i;
+            assertTrue(sleeps.get(i) >= backoff && sleeps.get(i) < 2 * backoff, sleeps.toString());
+        }
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < settings.getFailureThreshold(); i++) {
+            assertThrows(OriginException.class, () -> limiter.execute(() -> {
+                throw new OriginException("https://kazneb.kz/page.png", 503);
+            }));
+        }
+    }
+
+    private double rate() {
+        return store.load(KEY).orElseThrow().getRate();
+    }
+}
@@ -0,0 +1,29 @@
+package org.serverless.oqu.kerek;
+
+import org.junit.jupiter.api.Test;
+import org.serverless.oqu.kerek.pdf.BookPdfRenderer;
+import org.serverless.oqu.kerek.util.HtmlParseUtils;
+import org.serverless.oqu.kerek.util.PrimingRoutines;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrimingRoutinesTest {
+
+    @Test
+    void shouldRunAllRoutinesOffline() {
+        assertDoesNotThrow(PrimingRoutines::bookMapper);
+        assertDoesNotThrow(PrimingRoutines::json);
+        assertDoesNotThrow(HtmlParseUtils::prime);
+        assertDoesNotThrow(BookPdfRenderer::prime);
+    }
+
+    @Test
+    void shouldBundleBookPageWhichParsesLikeTheOrigin() throws IOException {
+        try (final var body = getClass().getResourceAsStream("/priming/book-page.html")) {
+            assertEquals(2, HtmlParseUtils.extractPagePaths(body).size());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.serverless.oqu.kerek;
+
+import org.junit.jupiter.api.Test;
+import org.serverless.oqu.kerek.http.LatencyTracker;
+import org.serverless.oqu.kerek.http.RequestHedger;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestHedgerTest {
+
+    @Test
+    void shouldUseFasterHedgedAttemptAndCloseSlowOne() throws Exception {
+        final var hedger = new RequestHedger(95, 0.5, 50, 20);
+        warmUp(hedger);
+
+        final var release = new CountDownLatch(1);
+        final var calls = new AtomicInteger();
+        final var slow = new Response("slow");
+        final var result = hedger.execute(() -> {
+            if (calls.getAndIncrement() == 0) {
+                awaitQuietly(release);
+                return slow;
+            }
+            return new Response("fast");
+        });
+        release.countDown();
+
+        assertEquals("fast", result.name);
+        assertEquals(1, hedger.hedgesCount());
+        assertTrue(slow.closed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldNotHedgeOverExtraLoadLimit() throws Exception {
+        final var hedger = new RequestHedger(95, 0, 10, 20);
+        warmUp(hedger);
+
+        final var calls = new AtomicInteger();
+        final var result = hedger.execute(() -> {
+            calls.incrementAndGet();
+            sleepQuietly(100);
+            return new Response("slow");
+        });
+
+        assertEquals("slow", result.name);
+        assertEquals(1, calls.get());
+        assertEquals(0, hedger.hedgesCount());
+    }
+
+    @Test
+    void shouldFallBackToHedgedAttemptWhenFirstFails() throws Exception {
+        final var hedger = new RequestHedger(95, 0.5, 10, 20);
+        warmUp(hedger);
+
+        final var calls = new AtomicInteger();
+        final var result = hedger.execute(() -> {
+            if (calls.getAndIncrement() == 0) {
+                sleepQuietly(100);
+                throw new IOException("Origin stalled");
+            }
+            return new Response("hedged");
+        });
+
+        assertEquals("hedged", result.name);
+    }
+
+    @Test
+    void shouldTrackLatencyPercentiles() {
+        final var tracker = new LatencyTracker(100);
+        for (int i = 1; i <= 200; i++) tracker.record(i);
+
+        assertEquals(100, tracker.size());
+        assertEquals(195, tracker.percentile(95));
+        assertEquals(200, tracker.percentile(100));
+        assertEquals(150, tracker.percentile(50));
+    }
+
+    private static void warmUp(final RequestHedger hedger) throws IOException {
+        for (int i = 0; i < 20; i++) hedger.execute(() -> new Response("warm-up"));
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepQuietly(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Response implements AutoCloseable {
+        private final String name;
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        Response(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+}
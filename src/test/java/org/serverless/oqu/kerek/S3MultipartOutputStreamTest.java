@@ -0,0 +1,64 @@
+package org.serverless.oqu.kerek;
+
+import org.junit.jupiter.api.Test;
+import org.serverless.oqu.kerek.storage.S3MultipartOutputStream;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.serverless.oqu.kerek.storage.S3MultipartOutputStream.MIN_PART_SIZE;
+
+class S3MultipartOutputStreamTest {
+
+    private final InMemoryS3Client s3 = new InMemoryS3Client();
+
+    @Test
+    void shouldUploadContentInParts() throws IOException {
+        final var content = randomBytes(MIN_PART_SIZE * 3 + 12_345);
+
+        try (final var output = new S3MultipartOutputStream(s3.client(), "bucket", "book/book.pdf", "application/pdf", MIN_PART_SIZE, 2)) {
+            for (int offset = 0; offset < content.length; offset += 4096) {
+                output.write(content, offset, Math.min(4096, content.length - offset));
+            }
+        }
+
+        assertArrayEquals(content, s3.objects.get("book/book.pdf"));
+        assertTrue(s3.uploads.isEmpty());
+    }
+
+    @Test
+    void shouldUploadEmptyContent() throws IOException {
+        new S3MultipartOutputStream(s3.client(), "bucket", "book/book.pdf", "application/pdf", MIN_PART_SIZE, 1).close();
+
+        assertArrayEquals(new byte[0], s3.objects.get("book/book.pdf"));
+    }
+
+    @Test
+    void shouldAbortUploadWhenPartFails() throws IOException {
+        s3.failOnPartNumber = "2";
+        final var output = new S3MultipartOutputStream(s3.client(), "bucket", "book/book.pdf", "application/pdf", MIN_PART_SIZE, 2);
+        output.write(randomBytes(MIN_PART_SIZE * 2 + 1));
+
+        assertThrows(IOException.class, output::close);
+        assertFalse(s3.objects.containsKey("book/book.pdf"));
+        assertEquals(1, s3.abortedUploads.get());
+    }
+
+    @Test
+    void shouldNotCreateObjectWhenAborted() throws IOException {
+        final var output = new S3MultipartOutputStream(s3.client(), "bucket", "book/book.pdf", "application/pdf", MIN_PART_SIZE, 2);
+        output.write(randomBytes(MIN_PART_SIZE + 1));
+        output.abort();
+
+        assertThrows(IOException.class, () -> output.write(1));
+        assertFalse(s3.objects.containsKey("book/book.pdf"));
+        assertTrue(s3.uploads.isEmpty());
+    }
+
+    private byte[] randomBytes(final int size) {
+        final var bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
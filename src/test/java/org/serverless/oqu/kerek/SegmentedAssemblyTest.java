@@ -0,0 +1,135 @@
+package org.serverless.oqu.kerek;
+
+import org.junit.jupiter.api.Test;
+import org.serverless.oqu.kerek.pdf.SegmentedAssembly;
+import org.serverless.oqu.kerek.queue.SqsBatchSender;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.serverless.oqu.kerek.pdf.BookSegments.*;
+
+class SegmentedAssemblyTest {
+
+    private final InMemoryS3Client s3 = new InMemoryS3Client();
+    private final List<SendMessageBatchRequestEntry> sent = new CopyOnWriteArrayList<>();
+    private volatile boolean rejectAll;
+
+    private final SegmentedAssembly assembly = new SegmentedAssembly(s3.client(), "bucket", new SqsBatchSender(client(), 2, 1), "segments");
+
+    @Test
+    void shouldPutRemainderIntoLastSegment() {
+        final var pages = pages(25);
+
+        assertEquals(3, segmentCount(25, 10));
+        assertEquals(pages.subList(0, 10), segmentPages(pages, 0, 10));
+        assertEquals(pages.subList(10, 20), segmentPages(pages, 1, 10));
+        assertEquals(pages.subList(20, 25), segmentPages(pages, 2, 10));
+    }
+
+    @Test
+    void shouldSplitExactMultipleIntoFullSegments() {
+        final var pages = pages(30);
+
+        assertEquals(3, segmentCount(30, 10));
+        assertEquals(pages.subList(20, 30), segmentPages(pages, 2, 10));
+        assertEquals(List.of(), segmentPages(pages, 3, 10));
+    }
+
+    @Test
+    void shouldPutFewerPagesThanSegmentSizeIntoSingleSegment() {
+        final var pages = pages(7);
+
+        assertEquals(1, segmentCount(7, 10));
+        assertEquals(pages, segmentPages(pages, 0, 10));
+    }
+
+    @Test
+    void shouldEnqueueMessagePerSegment() throws InterruptedException {
+        final var segments = assembly.enqueueSegments("123", 2_501, 100);
+
+        assertEquals(26, segments);
+        assertEquals(26, sent.size());
+        assertEquals(IntStream.range(0, 26).boxed().collect(toList()), sent.stream()
+                .map(entry -> Integer.parseInt(entry.messageAttributes().get(SEGMENT).stringValue()))
+                .sorted()
+                .collect(toList()));
+    }
+
+    @Test
+    void shouldRequestMergeOnlyOnceAllSegmentsExist() throws InterruptedException {
+        s3.objects.put(segmentKey("123", 0), new byte[1]);
+        s3.objects.put(segmentKey("123", 2), new byte[1]);
+        s3.objects.put(segmentKey("1234", 1), new byte[1]);
+
+        assertFalse(assembly.requestMergeIfComplete("123", 3));
+        assertTrue(sent.isEmpty());
+
+        s3.objects.put(segmentKey("123", 1), new byte[1]);
+
+        assertTrue(assembly.requestMergeIfComplete("123", 3));
+        assertEquals(1, sent.size());
+        assertEquals(MERGE, sent.get(0).messageAttributes().get(TYPE).stringValue());
+        assertEquals("3", sent.get(0).messageAttributes().get(SEGMENTS).stringValue());
+        assertEquals(List.of(segmentKey("123", 0), segmentKey("123", 1), segmentKey("123", 2)), assembly.segmentKeys("123"));
+    }
+
+    @Test
+    void shouldFailWhenMessagesCannotBeEnqueued() {
+        rejectAll = true;
+        s3.objects.put(segmentKey("123", 0), new byte[1]);
+
+        assertThrows(IllegalStateException.class, () -> assembly.enqueueSegments("123", 250, 100));
+        assertThrows(IllegalStateException.class, () -> assembly.requestMergeIfComplete("123", 1));
+        assertTrue(sent.isEmpty());
+    }
+
+    private static List<String> pages(final int count) {
+        return IntStream.rangeClosed(1, count).mapToObj(i -> "123/" + i + ".png").collect(toList());
+    }
+
+    /**
+     * Fake async client, which enqueues every entry unless told to reject them all.
+     */
+    private SqsAsyncClient client() {
+        return (SqsAsyncClient) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{SqsAsyncClient.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "sendMessageBatch":
+                    return sendMessageBatch((SendMessageBatchRequest) args[0]);
+                case "serviceName":
+                    return "sqs";
+                case "close":
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private CompletableFuture<SendMessageBatchResponse> sendMessageBatch(final SendMessageBatchRequest request) {
+        if (rejectAll) {
+            return CompletableFuture.completedFuture(SendMessageBatchResponse.builder()
+                    .failed(request.entries().stream()
+                            .map(entry -> BatchResultErrorEntry.builder().id(entry.id()).code("RequestThrottled").senderFault(false).build())
+                            .collect(toList()))
+                    .build());
+        }
+        sent.addAll(request.entries());
+        return CompletableFuture.completedFuture(SendMessageBatchResponse.builder()
+                .successful(request.entries().stream()
+                        .map(entry -> SendMessageBatchResultEntry.builder().id(entry.id()).build())
+                        .collect(toList()))
+                .build());
+    }
+}
@@ -0,0 +1,115 @@
+package org.serverless.oqu.kerek;
+
+import org.junit.jupiter.api.Test;
+import org.serverless.oqu.kerek.queue.SqsBatchSender;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+
+import java.lang.reflect.Proxy;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.util.concurrent.CompletableFuture.delayedExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqsBatchSenderTest {
+
+    private final Set<String> enqueued = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Test
+    void shouldSendAllEntriesWithLimitedBatchesInFlight() throws InterruptedException {
+        final var sender = new SqsBatchSender(client(entry -> null), 3, 3);
+
+        final var result = sender.send("queue", entries(95));
+
+        assertEquals(95, result.getEnqueued());
+        assertEquals(0, result.getFailed());
+        assertEquals(95, enqueued.size());
+        assertTrue(maxInFlight.get() <= 3);
+    }
+
+    @Test
+    void shouldRetryOnlyFailedEntries() throws InterruptedException {
+        final var attempts = new ConcurrentHashMap<String, AtomicInteger>();
+        final var sender = new SqsBatchSender(client(entry -> {
+            final var attempt = attempts.computeIfAbsent(entry.id(), id -> new AtomicInteger()).incrementAndGet();
+            return Integer.parseInt(entry.id()) % 4 == 0 && attempt < 3 ? throttled(entry) : null;
+        }), 5, 3);
+
+        final var result = sender.send("queue", entries(40));
+
+        assertEquals(40, result.getEnqueued());
+        assertEquals(0, result.getFailed());
+        assertEquals(3, attempts.get("0").get());
+        assertEquals(1, attempts.get("1").get());
+    }
+
+    @Test
+    void shouldReportEntriesThatCannotBeEnqueued() throws InterruptedException {
+        final var sender = new SqsBatchSender(client(entry -> {
+            if (entry.id().equals("3")) return throttled(entry);
+            if (entry.id().equals("7")) return BatchResultErrorEntry.builder().id(entry.id()).code("InvalidMessageContents").senderFault(true).build();
+            return null;
+        }), 2, 2);
+
+        final var result = sender.send("queue", entries(12));
+
+        assertEquals(10, result.getEnqueued());
+        assertEquals(2, result.getFailed());
+    }
+
+    private static Stream<SendMessageBatchRequestEntry> entries(final int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> SendMessageBatchRequestEntry.builder().id(String.valueOf(i)).messageBody("page-" + i).build());
+    }
+
+    private static BatchResultErrorEntry throttled(final SendMessageBatchRequestEntry entry) {
+        return BatchResultErrorEntry.builder().id(entry.id()).code("RequestThrottled").senderFault(false).build();
+    }
+
+    /**
+     * Fake async client, which fails the entries the given function returns an error for and enqueues the others.
+     */
+    private SqsAsyncClient client(final Function<SendMessageBatchRequestEntry, BatchResultErrorEntry> errors) {
+        return (SqsAsyncClient) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{SqsAsyncClient.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "sendMessageBatch":
+                    return sendMessageBatch((SendMessageBatchRequest) args[0], errors);
+                case "serviceName":
+                    return "sqs";
+                case "close":
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private CompletableFuture<SendMessageBatchResponse> sendMessageBatch(final SendMessageBatchRequest request,
+                                                                         final Function<SendMessageBatchRequestEntry, BatchResultErrorEntry> errors) {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        return CompletableFuture.supplyAsync(() -> {
+            final var failed = request.entries().stream().map(errors).filter(e -> e != null).collect(toList());
+            final var successful = request.entries().stream()
+                    .filter(entry -> failed.stream().noneMatch(error -> error.id().equals(entry.id())))
+                    .peek(entry -> assertTrue(enqueued.add(entry.id())))
+                    .map(entry -> SendMessageBatchResultEntry.builder().id(entry.id()).build())
+                    .collect(toList());
+            inFlight.decrementAndGet();
+            return SendMessageBatchResponse.builder().successful(successful).failed(failed).build();
+        }, delayedExecutor(10, MILLISECONDS));
+    }
+}
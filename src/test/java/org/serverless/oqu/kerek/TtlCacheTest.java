@@ -0,0 +1,53 @@
+package org.serverless.oqu.kerek;
+
+import org.junit.jupiter.api.Test;
+import org.serverless.oqu.kerek.cache.TtlCache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TtlCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final TtlCache<String, String> cache = new TtlCache<>(2, clock::get);
+
+    @Test
+    void shouldExpireEntriesAfterTtl() {
+        cache.put("1628186", "Ready", Duration.ofMinutes(10));
+        cache.put("82809", "InProgress", Duration.ofSeconds(30));
+
+        clock.addAndGet(Duration.ofSeconds(30).toMillis());
+
+        assertEquals(Optional.of("Ready"), cache.get("1628186"));
+        assertEquals(Optional.empty(), cache.get("82809"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntry() {
+        cache.put("1", "first", Duration.ofMinutes(1));
+        cache.put("2", "second", Duration.ofMinutes(1));
+        cache.get("1");
+        cache.put("3", "third", Duration.ofMinutes(1));
+
+        assertTrue(cache.get("1").isPresent());
+        assertTrue(cache.get("2").isEmpty());
+        assertTrue(cache.get("3").isPresent());
+        assertEquals("size=2, hits=3, misses=1, evictions=1", cache.stats());
+    }
+
+    @Test
+    void shouldCountHitsAndMisses() {
+        assertTrue(cache.get("1").isEmpty());
+        cache.put("1", "first", Duration.ofMinutes(1));
+        assertTrue(cache.get("1").isPresent());
+        cache.invalidate("1");
+        assertTrue(cache.get("1").isEmpty());
+
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+}
@@ -0,0 +1,91 @@
+package org.serverless.template;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqsEventHandlerTest {
+
+    @Test
+    void shouldReportOnlyFailedMessages() {
+        final var handler = new TestSqsEventHandler(false);
+
+        final var response = handler.handleRequest(event(
+                message("1", "ok", "a"),
+                message("2", "fail", "a"),
+                message("3", "ok", "b"),
+                message("4", "fail", "b")
+        ), new LambdaTestContext());
+
+        assertEquals(Set.of("2", "4"), failedMessageIds(response));
+        assertEquals(Set.of("1", "2", "3", "4"), Set.copyOf(handler.processed));
+    }
+
+    @Test
+    void shouldStopProcessingMessageGroupAfterFailure() {
+        final var handler = new TestSqsEventHandler(true);
+
+        final var response = handler.handleRequest(event(
+                message("1", "ok", "a"),
+                message("2", "fail", "a"),
+                message("3", "ok", "a"),
+                message("4", "ok", "b")
+        ), new LambdaTestContext());
+
+        assertEquals(Set.of("2", "3"), failedMessageIds(response));
+        assertEquals(Set.of("1", "2", "4"), Set.copyOf(handler.processed));
+        assertTrue(handler.processed.indexOf("1") < handler.processed.indexOf("2"));
+    }
+
+    private Set<String> failedMessageIds(final SQSBatchResponse response) {
+        return response.getBatchItemFailures()
+                .stream()
+                .map(SQSBatchResponse.BatchItemFailure::getItemIdentifier)
+                .collect(toSet());
+    }
+
+    private SQSEvent event(final SQSEvent.SQSMessage... messages) {
+        final var event = new SQSEvent();
+        event.setRecords(List.of(messages));
+        return event;
+    }
+
+    private SQSEvent.SQSMessage message(final String id, final String body, final String groupId) {
+        final var message = new SQSEvent.SQSMessage();
+        message.setMessageId(id);
+        message.setBody(body);
+        message.setAttributes(Map.of("MessageGroupId", groupId));
+        return message;
+    }
+
+    private static class TestSqsEventHandler extends SqsEventHandler {
+
+        private final List<String> processed = new CopyOnWriteArrayList<>();
+        private final boolean ordered;
+
+        private TestSqsEventHandler(final boolean ordered) {
+            this.ordered = ordered;
+        }
+
+        @Override
+        protected Void doHandleRequest(final SQSEvent.SQSMessage input, final Context context) {
+            processed.add(input.getMessageId());
+            if ("fail".equals(input.getBody())) throw new IllegalStateException("Failed to process " + input.getMessageId());
+            return null;
+        }
+
+        @Override
+        protected boolean isOrderedByMessageGroup() {
+            return ordered;
+        }
+    }
+}